@@ -0,0 +1,22 @@
+package ru.practicum.benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException {
+        String include = args.length > 0 ? args[0] : "ru.practicum.benchmark.*";
+        String resultFile = args.length > 1 ? args[1] : "bench-results.json";
+
+        Options options = new OptionsBuilder()
+                .include(include)
+                .resultFormat(ResultFormatType.JSON)
+                .result(resultFile)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,58 @@
+package ru.practicum.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import ru.practicum.model.Epic;
+import ru.practicum.model.Status;
+import ru.practicum.model.Subtask;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EpicBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    private int subtaskCount;
+
+    private Epic epic;
+    private Subtask probe;
+
+    @Setup
+    public void setUp() {
+        epic = new Epic(1, "Эпик", "Описание", Status.NEW);
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        for (int i = 0; i < subtaskCount; i++) {
+            epic.addSubtask(new Subtask(i + 2, "Подзадача", "Описание", Status.IN_PROGRESS,
+                    start.plusHours(i), Duration.ofMinutes(30), 1));
+        }
+        probe = new Subtask(subtaskCount + 2, "Подзадача", "Описание", Status.DONE,
+                start.minusHours(1), Duration.ofMinutes(15), 1);
+    }
+
+    @Benchmark
+    public void aggregateGetters(Blackhole blackhole) {
+        blackhole.consume(epic.getStartTime());
+        blackhole.consume(epic.getDuration());
+        blackhole.consume(epic.getEndTime());
+    }
+
+    @Benchmark
+    public Status addAndRemoveSubtask() {
+        epic.addSubtask(probe);
+        Status status = epic.calculateStatus();
+        epic.removeSubtask(probe);
+        return status;
+    }
+
+    @Benchmark
+    public String toCSVString() {
+        return epic.toCSVString();
+    }
+}
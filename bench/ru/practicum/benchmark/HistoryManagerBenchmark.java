@@ -0,0 +1,45 @@
+package ru.practicum.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.practicum.manager.HistoryManager;
+import ru.practicum.manager.Managers;
+import ru.practicum.model.Task;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HistoryManagerBenchmark {
+
+    private static final int TASK_COUNT = 1024;
+
+    private HistoryManager historyManager;
+    private Task[] tasks;
+    private int cursor;
+
+    @Setup
+    public void setUp() {
+        historyManager = Managers.getDefaultHistory();
+        tasks = new Task[TASK_COUNT];
+        for (int i = 0; i < TASK_COUNT; i++) {
+            tasks[i] = new Task("Задача " + i, "Описание");
+            tasks[i].setId(i + 1);
+            historyManager.add(tasks[i]);
+        }
+    }
+
+    @Benchmark
+    public void add() {
+        historyManager.add(tasks[cursor++ & (TASK_COUNT - 1)]);
+    }
+
+    @Benchmark
+    public List<Task> getHistory() {
+        return historyManager.getHistory();
+    }
+}
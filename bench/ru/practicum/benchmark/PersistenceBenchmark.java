@@ -0,0 +1,82 @@
+package ru.practicum.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.practicum.manager.FileBackedTaskManager;
+import ru.practicum.manager.SnapshotFormat;
+import ru.practicum.model.Epic;
+import ru.practicum.model.Status;
+import ru.practicum.model.Subtask;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class PersistenceBenchmark {
+
+    private static final int SUBTASKS_PER_EPIC = 100;
+
+    @Param({"1000", "100000", "1000000"})
+    private int records;
+
+    @Param({"CSV", "BINARY"})
+    private SnapshotFormat format;
+
+    private File file;
+    private FileBackedTaskManager manager;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        // Исходные данные пишем сразу в CSV: вставка через менеджер сохраняла бы снимок на каждой операции
+        File seed = Files.createTempFile("kanban-bench-seed", ".csv").toFile();
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        try (BufferedWriter writer = Files.newBufferedWriter(seed.toPath(), StandardCharsets.UTF_8)) {
+            writer.write("id,type,name,status,description,startTime,duration,epic\n");
+            int epicId = 0;
+            for (int id = 1; id <= records; id++) {
+                if (id % (SUBTASKS_PER_EPIC + 1) == 1) {
+                    epicId = id;
+                    writer.write(new Epic(id, "Эпик " + id, "Описание", Status.NEW).toCSVString());
+                } else {
+                    writer.write(new Subtask(id, "Подзадача " + id, "Описание", Status.NEW,
+                            start.plusHours(id), Duration.ofMinutes(30), epicId).toCSVString());
+                }
+                writer.write("\n");
+            }
+            writer.write("\nHISTORY:\n");
+            for (int id = 2; id <= records; id += records / 10) {
+                writer.write(id + "\n");
+            }
+        }
+
+        file = Files.createTempFile("kanban-bench", ".snapshot").toFile();
+        manager = FileBackedTaskManager.loadFromFile(seed);
+        manager.writeSnapshot(file, format);
+        seed.delete();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Benchmark
+    public void save() {
+        manager.writeSnapshot(file, format);
+    }
+
+    @Benchmark
+    public FileBackedTaskManager load() {
+        return FileBackedTaskManager.loadFromFile(file);
+    }
+}
@@ -0,0 +1,66 @@
+package ru.practicum.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.practicum.manager.InMemoryTaskManager;
+import ru.practicum.model.Epic;
+import ru.practicum.model.Subtask;
+import ru.practicum.model.Task;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TaskManagerBenchmark {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2024, 1, 1, 0, 0);
+    private static final Duration SLOT = Duration.ofMinutes(30);
+
+    @Param({"1000", "10000", "100000"})
+    private int size;
+
+    private InMemoryTaskManager manager;
+    private int epicId;
+    private long nextSlot;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        manager = new InMemoryTaskManager();
+        epicId = manager.addEpic(new Epic("Эпик", "Описание"));
+        for (int i = 0; i < size; i++) {
+            manager.addTask(new Task("Задача " + i, "Описание", slot(i), SLOT));
+        }
+        nextSlot = size;
+    }
+
+    @Benchmark
+    public int addTimedTask() {
+        return manager.addTask(new Task("Задача", "Описание", slot(nextSlot++), SLOT));
+    }
+
+    @Benchmark
+    public int addTimedSubtask() {
+        return manager.addSubtask(new Subtask("Подзадача", "Описание", epicId, slot(nextSlot++), SLOT));
+    }
+
+    @Benchmark
+    public int rejectOverlappingTask() {
+        return manager.addTask(new Task("Задача", "Описание", slot(size / 2), SLOT));
+    }
+
+    @Benchmark
+    public List<Task> getPrioritizedTasks() {
+        return manager.getPrioritizedTasks();
+    }
+
+    // Интервалы по часу, чтобы задачи длиной 30 минут не касались друг друга
+    private static LocalDateTime slot(long index) {
+        return BASE.plusHours(index);
+    }
+}
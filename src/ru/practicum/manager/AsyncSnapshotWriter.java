@@ -0,0 +1,109 @@
+package ru.practicum.manager;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * Один фоновый поток склеивает серию изменений в одну запись снимка: запись планируется
+ * через delayMillis после первого изменения или сразу, когда накопилось maxDirtyOps.
+ * Сама сериализация выполняется переданным действием, которое знает, как снять снимок.
+ */
+class AsyncSnapshotWriter implements AutoCloseable {
+
+    interface SnapshotAction {
+        // Возвращает число изменений, попавших в записанный снимок
+        int write();
+    }
+
+    private final ScheduledExecutorService executor;
+    private final SnapshotAction action;
+    private final long delayMillis;
+    private final int maxDirtyOps;
+    private final AtomicInteger pending = new AtomicInteger();
+
+    private ScheduledFuture<?> scheduled;
+    private volatile RuntimeException lastError;
+
+    AsyncSnapshotWriter(SnapshotAction action, long delayMillis, int maxDirtyOps) {
+        if (delayMillis < 0 || maxDirtyOps <= 0) {
+            throw new IllegalArgumentException("Некорректные параметры фоновой записи");
+        }
+        this.action = action;
+        this.delayMillis = delayMillis;
+        this.maxDirtyOps = maxDirtyOps;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "kanban-snapshot-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    void markDirty() {
+        int dirty = pending.incrementAndGet();
+        synchronized (this) {
+            if (dirty >= maxDirtyOps) {
+                if (scheduled == null || scheduled.getDelay(TimeUnit.MILLISECONDS) > 0) {
+                    if (scheduled != null) {
+                        scheduled.cancel(false);
+                    }
+                    scheduled = executor.schedule(this::writeSnapshot, 0, TimeUnit.MILLISECONDS);
+                }
+            } else if (scheduled == null) {
+                scheduled = executor.schedule(this::writeSnapshot, delayMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    int getPendingMutations() {
+        return pending.get();
+    }
+
+    void flush() {
+        Future<?> future;
+        synchronized (this) {
+            if (scheduled != null) {
+                scheduled.cancel(false);
+            }
+            future = executor.submit(this::writeSnapshot);
+        }
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ManagerSaveException("Ожидание записи снимка прервано", e);
+        } catch (ExecutionException e) {
+            throw new ManagerSaveException("Не удалось сохранить данные в файл", e.getCause());
+        }
+        RuntimeException error = lastError;
+        if (error != null) {
+            lastError = null;
+            throw new ManagerSaveException("Не удалось сохранить данные в файл", error);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            flush();
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private void writeSnapshot() {
+        synchronized (this) {
+            scheduled = null;
+        }
+        if (pending.get() == 0) {
+            return;
+        }
+        try {
+            int written = action.write();
+            pending.addAndGet(-written);
+            lastError = null;
+        } catch (RuntimeException e) {
+            // Изменения остаются в счётчике и будут записаны следующей попыткой
+            lastError = e;
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package ru.practicum.manager;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.util.zip.CRC32C;
+
+/*
+ * Снимок пишется во временный файл рядом с целевым, сбрасывается на диск и атомарно
+ * переименовывается поверх старого, после чего сбрасывается и каталог, чтобы переименование
+ * пережило сбой. Временный файл получает права (и по возможности владельца) целевого, поэтому
+ * снимок только для чтения так и не удастся перезаписать. В конце файла добавляется строка
+ * "#crc32c:xxxxxxxx", по которой загрузчик проверяет целостность. Файлы без неё считаются
+ * старыми и не проверяются.
+ */
+final class AtomicSnapshotFile {
+
+    interface Body {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    static final String TRAILER_PREFIX = "#crc32c:";
+    static final int TRAILER_LENGTH = TRAILER_PREFIX.length() + 8 + 1;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private AtomicSnapshotFile() {
+
+    }
+
+    static long write(File target, Body body) {
+        Path targetPath = target.toPath().toAbsolutePath();
+        Path temp = null;
+        try {
+            temp = Files.createTempFile(targetPath.getParent(), targetPath.getFileName().toString(), ".tmp");
+            copyAttributes(targetPath, temp);
+            long written;
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+                 ChecksumChannelOutputStream out = new ChecksumChannelOutputStream(channel)) {
+                body.writeTo(out);
+                out.writeTrailer();
+                out.flush();
+                channel.force(true);
+                written = out.getWritten();
+            }
+            moveAtomically(temp, targetPath);
+            forceDirectory(targetPath.getParent());
+            return written;
+        } catch (IOException e) {
+            throw new ManagerSaveException("Не удалось сохранить данные в файл", e);
+        } finally {
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    static void verify(File file) {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            Long expected = readExpected(channel, size, file);
+            if (expected == null) {
+                return;
+            }
+
+            CRC32C crc = new CRC32C();
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            long remaining = size - TRAILER_LENGTH;
+            long position = 0;
+            while (remaining > 0) {
+                buffer.clear();
+                if (remaining < buffer.capacity()) {
+                    buffer.limit((int) remaining);
+                }
+                int read = channel.read(buffer, position);
+                if (read <= 0) {
+                    break;
+                }
+                buffer.flip();
+                crc.update(buffer);
+                position += read;
+                remaining -= read;
+            }
+            checkCrc(crc, expected, file);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Не удалось загрузить данные из файла", e);
+        }
+    }
+
+    // Для уже отображённого в память снимка: сумма считается прямо по отображению
+    static void verify(ByteBuffer content, File file) {
+        int size = content.limit();
+        if (size < TRAILER_LENGTH) {
+            return;
+        }
+        byte[] trailer = new byte[TRAILER_LENGTH];
+        content.duplicate().position(size - TRAILER_LENGTH).get(trailer);
+        Long expected = parseTrailer(trailer, file);
+        if (expected == null) {
+            return;
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(content.duplicate().position(0).limit(size - TRAILER_LENGTH));
+        checkCrc(crc, expected, file);
+    }
+
+    private static Long readExpected(FileChannel channel, long size, File file) throws IOException {
+        if (size < TRAILER_LENGTH) {
+            return null;
+        }
+        ByteBuffer trailer = ByteBuffer.allocate(TRAILER_LENGTH);
+        channel.read(trailer, size - TRAILER_LENGTH);
+        return parseTrailer(trailer.array(), file);
+    }
+
+    private static Long parseTrailer(byte[] trailer, File file) {
+        String text = new String(trailer, StandardCharsets.US_ASCII);
+        if (!text.startsWith(TRAILER_PREFIX)) {
+            return null;
+        }
+        try {
+            return Long.parseLong(text.substring(TRAILER_PREFIX.length(), TRAILER_LENGTH - 1), 16);
+        } catch (NumberFormatException e) {
+            throw new ManagerSaveException("Файл повреждён: некорректная контрольная сумма " + file);
+        }
+    }
+
+    private static void checkCrc(CRC32C crc, long expected, File file) {
+        if (crc.getValue() != expected) {
+            throw new ManagerSaveException("Файл повреждён: контрольная сумма не совпадает " + file);
+        }
+    }
+
+    private static void copyAttributes(Path target, Path temp) throws IOException {
+        PosixFileAttributeView tempView = Files.getFileAttributeView(temp, PosixFileAttributeView.class);
+        if (tempView == null || !Files.exists(target)) {
+            return;
+        }
+        PosixFileAttributes attributes = Files.readAttributes(target, PosixFileAttributes.class);
+        // Сменить владельца может только привилегированный процесс, иначе остаётся текущий
+        try {
+            tempView.setOwner(attributes.owner());
+            tempView.setGroup(attributes.group());
+        } catch (FileSystemException ignored) {
+        }
+        tempView.setPermissions(attributes.permissions());
+    }
+
+    // На Windows каталог нельзя открыть как канал, там переименование сбрасывается самой ФС
+    static void forceDirectory(Path directory) throws IOException {
+        if (File.separatorChar == '\\') {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+    }
+
+    private static void moveAtomically(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static class ChecksumChannelOutputStream extends OutputStream {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        private final CRC32C crc = new CRC32C();
+        private long written;
+
+        ChecksumChannelOutputStream(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (!buffer.hasRemaining()) {
+                drain();
+            }
+            buffer.put((byte) b);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            while (length > 0) {
+                if (!buffer.hasRemaining()) {
+                    drain();
+                }
+                int chunk = Math.min(length, buffer.remaining());
+                buffer.put(bytes, offset, chunk);
+                offset += chunk;
+                length -= chunk;
+            }
+        }
+
+        void writeTrailer() throws IOException {
+            drain();
+            String trailer = TRAILER_PREFIX + String.format("%08x", crc.getValue()) + "\n";
+            buffer.put(trailer.getBytes(StandardCharsets.US_ASCII));
+            buffer.flip();
+            written += buffer.remaining();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        long getWritten() {
+            return written;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            drain();
+        }
+
+        private void drain() throws IOException {
+            buffer.flip();
+            crc.update(buffer.duplicate());
+            written += buffer.remaining();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package ru.practicum.manager;
+
+import ru.practicum.model.*;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+/*
+ * Формат: заголовок "KBIN" + версия, затем записи [тип][varint длина][данные], в конце END.
+ * Данные задачи: varint id, статус, строки name/description (varint длина + 1, 0 - null),
+ * флаги наличия времени, zigzag-varlong минута эпохи начала, varlong минуты длительности,
+ * для подзадачи - varint id эпика. Время хранится с точностью до минуты.
+ */
+final class BinarySnapshotCodec {
+
+    static final byte[] MAGIC = {'K', 'B', 'I', 'N'};
+    static final int VERSION = 1;
+
+    static final int END = 0;
+    static final int TASK = 1;
+    static final int EPIC = 2;
+    static final int SUBTASK = 3;
+    static final int HISTORY = 4;
+
+    private static final int HAS_START = 1;
+    private static final int HAS_DURATION = 2;
+    private static final Status[] STATUSES = Status.values();
+
+    private BinarySnapshotCodec() {
+
+    }
+
+    static boolean isBinary(File file) {
+        if (file.length() < MAGIC.length) {
+            return false;
+        }
+        try (InputStream in = new FileInputStream(file)) {
+            return Arrays.equals(MAGIC, in.readNBytes(MAGIC.length));
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    static void write(OutputStream out, Collection<Task> tasks, Collection<Epic> epics,
+                      Collection<Subtask> subtasks, List<Task> history) throws IOException {
+        out.write(MAGIC);
+        out.write(VERSION);
+
+        ByteArrayOutputStream payload = new ByteArrayOutputStream(256);
+        for (Task task : tasks) {
+            writeRecord(out, TASK, encodeTask(payload, task));
+        }
+        for (Epic epic : epics) {
+            writeRecord(out, EPIC, encodeTask(payload, epic));
+        }
+        for (Subtask subtask : subtasks) {
+            writeRecord(out, SUBTASK, encodeTask(payload, subtask));
+        }
+
+        payload.reset();
+        writeVarLong(payload, history.size());
+        for (Task task : history) {
+            writeVarLong(payload, task.getId());
+        }
+        writeRecord(out, HISTORY, payload);
+
+        out.write(END);
+    }
+
+    static void read(InputStream in, Consumer<Task> taskConsumer, Consumer<List<Integer>> historyConsumer)
+            throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        readHeader(data);
+
+        byte[] buffer = new byte[256];
+        while (true) {
+            int kind = data.read();
+            if (kind == -1 || kind == END) {
+                return;
+            }
+            int length = (int) readVarLong(data);
+            if (buffer.length < length) {
+                buffer = new byte[Math.max(length, buffer.length * 2)];
+            }
+            data.readFully(buffer, 0, length);
+            ByteBuffer payload = ByteBuffer.wrap(buffer, 0, length);
+
+            if (kind == HISTORY) {
+                historyConsumer.accept(decodeHistory(payload));
+            } else {
+                Task task = decodeTask(kind, payload);
+                if (task != null) {
+                    taskConsumer.accept(task);
+                }
+            }
+        }
+    }
+
+    static void readHeader(DataInputStream data) throws IOException {
+        byte[] magic = data.readNBytes(MAGIC.length);
+        if (!Arrays.equals(MAGIC, magic)) {
+            throw new IOException("Файл не является бинарным снимком");
+        }
+        int version = data.read();
+        if (version != VERSION) {
+            throw new IOException("Неподдерживаемая версия бинарного снимка: " + version);
+        }
+    }
+
+    static Task decodeTask(int kind, ByteBuffer payload) {
+        int id = (int) readVarLong(payload);
+        Status status = STATUSES[payload.get()];
+        String name = readString(payload);
+        String description = readString(payload);
+        int flags = payload.get();
+        LocalDateTime startTime = null;
+        Duration duration = null;
+        if ((flags & HAS_START) != 0) {
+            long epochMinute = zigZagDecode(readVarLong(payload));
+            startTime = LocalDateTime.ofEpochSecond(epochMinute * 60, 0, ZoneOffset.UTC);
+        }
+        if ((flags & HAS_DURATION) != 0) {
+            duration = Duration.ofMinutes(readVarLong(payload));
+        }
+
+        switch (kind) {
+            case TASK:
+                return new Task(id, name, description, status, startTime, duration);
+            case EPIC:
+                return new Epic(id, name, description, status);
+            case SUBTASK:
+                int epicId = (int) readVarLong(payload);
+                return new Subtask(id, name, description, status, startTime, duration, epicId);
+            default:
+                return null;
+        }
+    }
+
+    static List<Integer> decodeHistory(ByteBuffer payload) {
+        int size = (int) readVarLong(payload);
+        List<Integer> ids = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            ids.add((int) readVarLong(payload));
+        }
+        return ids;
+    }
+
+    private static ByteArrayOutputStream encodeTask(ByteArrayOutputStream payload, Task task) {
+        payload.reset();
+        writeVarLong(payload, task.getId());
+        payload.write(task.getStatus().ordinal());
+        writeString(payload, task.getName());
+        writeString(payload, task.getDescription());
+
+        // Время эпика вычисляется по подзадачам и не сохраняется
+        boolean epic = task instanceof Epic;
+        LocalDateTime startTime = epic ? null : task.getStartTime();
+        Duration duration = epic ? null : task.getDuration();
+        int flags = (startTime != null ? HAS_START : 0) | (duration != null ? HAS_DURATION : 0);
+        payload.write(flags);
+        if (startTime != null) {
+            long epochMinute = Math.floorDiv(startTime.toEpochSecond(ZoneOffset.UTC), 60);
+            writeVarLong(payload, zigZagEncode(epochMinute));
+        }
+        if (duration != null) {
+            writeVarLong(payload, duration.toMinutes());
+        }
+        if (task instanceof Subtask) {
+            writeVarLong(payload, ((Subtask) task).getEpicID());
+        }
+        return payload;
+    }
+
+    private static void writeRecord(OutputStream out, int kind, ByteArrayOutputStream payload) throws IOException {
+        out.write(kind);
+        writeVarLong(out, payload.size());
+        payload.writeTo(out);
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String value) {
+        if (value == null) {
+            writeVarLong(out, 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, bytes.length + 1L);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = (int) readVarLong(in);
+        if (length == 0) {
+            return null;
+        }
+        if (in.hasArray()) {
+            String value = new String(in.array(), in.arrayOffset() + in.position(), length - 1, StandardCharsets.UTF_8);
+            in.position(in.position() + length - 1);
+            return value;
+        }
+        byte[] bytes = new byte[length - 1];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static void writeVarLong(OutputStream out, long value) {
+        try {
+            while ((value & ~0x7FL) != 0) {
+                out.write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            out.write((int) value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        int shift = 0;
+        while (true) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+            shift += 7;
+        }
+    }
+
+    static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        int shift = 0;
+        while (true) {
+            int b = in.read();
+            if (b == -1) {
+                throw new EOFException("Неожиданный конец бинарного снимка");
+            }
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+            shift += 7;
+        }
+    }
+
+    private static long zigZagEncode(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long zigZagDecode(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
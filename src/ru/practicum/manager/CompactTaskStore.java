@@ -0,0 +1,365 @@
+package ru.practicum.manager;
+
+import ru.practicum.model.Status;
+import ru.practicum.model.Task;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+
+/*
+ * Компактное хранилище обычных задач: вместо объектов Task - параллельные массивы в таблице
+ * с открытой адресацией. Время хранится секундами от эпохи и наносекундами без потери точности
+ * (индекс расписания держит исходное время, они должны совпадать), статус - байтом, а одинаковые
+ * названия и описания - одним экземпляром строки из пула со счётчиком ссылок. Объект Task
+ * собирается заново при каждом чтении, поэтому изменения возвращённой задачи попадают
+ * в хранилище только через put().
+ */
+class CompactTaskStore implements IntMap<Task> {
+
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.75f;
+
+    // 0 - свободная ячейка, 1 - статус не задан, дальше ordinal + 2
+    private static final byte FREE = 0;
+    private static final byte NO_STATUS = 1;
+    private static final Status[] STATUSES = Status.values();
+
+    private static final long NO_TIME = Long.MIN_VALUE;
+
+    private int[] ids;
+    private byte[] states;
+    private long[] startSeconds;
+    private int[] startNanos;
+    private long[] durationSeconds;
+    private int[] durationNanos;
+    private String[] names;
+    private String[] descriptions;
+    private int size;
+    private int threshold;
+
+    private final StringPool strings = new StringPool();
+
+    CompactTaskStore() {
+        allocate(DEFAULT_CAPACITY);
+    }
+
+    @Override
+    public Task get(int key) {
+        int index = indexOf(key);
+        return index < 0 ? null : materialize(index);
+    }
+
+    @Override
+    public boolean containsKey(int key) {
+        return indexOf(key) >= 0;
+    }
+
+    @Override
+    public Task put(int key, Task task) {
+        if (task == null || task.getClass() != Task.class) {
+            throw new IllegalArgumentException("Компактно хранятся только обычные задачи");
+        }
+        int mask = ids.length - 1;
+        int index = hash(key) & mask;
+        while (states[index] != FREE) {
+            if (ids[index] == key) {
+                Task old = materialize(index);
+                releaseStrings(index);
+                write(index, key, task);
+                return old;
+            }
+            index = (index + 1) & mask;
+        }
+        write(index, key, task);
+        if (++size > threshold) {
+            resize();
+        }
+        return null;
+    }
+
+    @Override
+    public Task remove(int key) {
+        int index = indexOf(key);
+        if (index < 0) {
+            return null;
+        }
+        Task old = materialize(index);
+        releaseStrings(index);
+        shiftBack(index);
+        size--;
+        return old;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(states, FREE);
+        Arrays.fill(names, null);
+        Arrays.fill(descriptions, null);
+        strings.clear();
+        size = 0;
+    }
+
+    @Override
+    public Collection<Task> values() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<Task> iterator() {
+                return new Iterator<>() {
+                    private int index = nextOccupied(0);
+
+                    @Override
+                    public boolean hasNext() {
+                        return index < states.length;
+                    }
+
+                    @Override
+                    public Task next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        Task task = materialize(index);
+                        index = nextOccupied(index + 1);
+                        return task;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    private void write(int index, int key, Task task) {
+        ids[index] = key;
+        states[index] = task.getStatus() == null ? NO_STATUS : (byte) (task.getStatus().ordinal() + 2);
+        LocalDateTime start = task.getStartTime();
+        startSeconds[index] = start == null ? NO_TIME : start.toEpochSecond(ZoneOffset.UTC);
+        startNanos[index] = start == null ? 0 : start.getNano();
+        Duration duration = task.getDuration();
+        durationSeconds[index] = duration == null ? NO_TIME : duration.getSeconds();
+        durationNanos[index] = duration == null ? 0 : duration.getNano();
+        names[index] = strings.acquire(task.getName());
+        descriptions[index] = strings.acquire(task.getDescription());
+    }
+
+    private void releaseStrings(int index) {
+        strings.release(names[index]);
+        strings.release(descriptions[index]);
+    }
+
+    private Task materialize(int index) {
+        byte state = states[index];
+        Status status = state == NO_STATUS ? null : STATUSES[state - 2];
+        long start = startSeconds[index];
+        long duration = durationSeconds[index];
+        return new Task(ids[index], names[index], descriptions[index], status,
+                start == NO_TIME ? null : LocalDateTime.ofEpochSecond(start, startNanos[index], ZoneOffset.UTC),
+                duration == NO_TIME ? null : Duration.ofSeconds(duration, durationNanos[index]));
+    }
+
+    int internedStrings() {
+        return strings.size;
+    }
+
+    private int indexOf(int key) {
+        int mask = ids.length - 1;
+        int index = hash(key) & mask;
+        while (states[index] != FREE) {
+            if (ids[index] == key) {
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+        return -1;
+    }
+
+    // Тот же сдвиг назад, что и в IntHashMap, только переносятся все колонки строки
+    private void shiftBack(int hole) {
+        int mask = ids.length - 1;
+        int index = hole;
+        while (true) {
+            index = (index + 1) & mask;
+            if (states[index] == FREE) {
+                break;
+            }
+            int home = hash(ids[index]) & mask;
+            boolean reachable = hole <= index ? hole < home && home <= index : hole < home || home <= index;
+            if (!reachable) {
+                copyRow(index, hole);
+                hole = index;
+            }
+        }
+        states[hole] = FREE;
+        names[hole] = null;
+        descriptions[hole] = null;
+    }
+
+    private void copyRow(int from, int to) {
+        ids[to] = ids[from];
+        states[to] = states[from];
+        startSeconds[to] = startSeconds[from];
+        startNanos[to] = startNanos[from];
+        durationSeconds[to] = durationSeconds[from];
+        durationNanos[to] = durationNanos[from];
+        names[to] = names[from];
+        descriptions[to] = descriptions[from];
+    }
+
+    private void resize() {
+        int[] oldIds = ids;
+        byte[] oldStates = states;
+        long[] oldStarts = startSeconds;
+        int[] oldStartNanos = startNanos;
+        long[] oldDurations = durationSeconds;
+        int[] oldDurationNanos = durationNanos;
+        String[] oldNames = names;
+        String[] oldDescriptions = descriptions;
+        allocate(oldIds.length * 2);
+        int mask = ids.length - 1;
+        for (int i = 0; i < oldIds.length; i++) {
+            if (oldStates[i] != FREE) {
+                int index = hash(oldIds[i]) & mask;
+                while (states[index] != FREE) {
+                    index = (index + 1) & mask;
+                }
+                ids[index] = oldIds[i];
+                states[index] = oldStates[i];
+                startSeconds[index] = oldStarts[i];
+                startNanos[index] = oldStartNanos[i];
+                durationSeconds[index] = oldDurations[i];
+                durationNanos[index] = oldDurationNanos[i];
+                names[index] = oldNames[i];
+                descriptions[index] = oldDescriptions[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        ids = new int[capacity];
+        states = new byte[capacity];
+        startSeconds = new long[capacity];
+        startNanos = new int[capacity];
+        durationSeconds = new long[capacity];
+        durationNanos = new int[capacity];
+        names = new String[capacity];
+        descriptions = new String[capacity];
+        threshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private int nextOccupied(int from) {
+        int i = from;
+        while (i < states.length && states[i] == FREE) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int hash(int key) {
+        return key ^ (key >>> 16);
+    }
+
+    // Пул строк с открытой адресацией и счётчиком ссылок: строка уходит из пула вместе
+    // с последней задачей, которая на неё ссылалась, и не требует узла на запись
+    private static final class StringPool {
+        private String[] values = new String[DEFAULT_CAPACITY];
+        private int[] counts = new int[DEFAULT_CAPACITY];
+        private int size;
+
+        String acquire(String value) {
+            if (value == null) {
+                return null;
+            }
+            int mask = values.length - 1;
+            int index = hash(value.hashCode()) & mask;
+            while (values[index] != null) {
+                if (values[index].equals(value)) {
+                    counts[index]++;
+                    return values[index];
+                }
+                index = (index + 1) & mask;
+            }
+            values[index] = value;
+            counts[index] = 1;
+            if (++size > values.length * LOAD_FACTOR) {
+                resize();
+            }
+            return value;
+        }
+
+        void release(String value) {
+            if (value == null) {
+                return;
+            }
+            int mask = values.length - 1;
+            int index = hash(value.hashCode()) & mask;
+            while (values[index] != null) {
+                if (values[index].equals(value)) {
+                    if (--counts[index] == 0) {
+                        shiftBack(index);
+                        size--;
+                    }
+                    return;
+                }
+                index = (index + 1) & mask;
+            }
+        }
+
+        void clear() {
+            Arrays.fill(values, null);
+            Arrays.fill(counts, 0);
+            size = 0;
+        }
+
+        private void shiftBack(int hole) {
+            int mask = values.length - 1;
+            int index = hole;
+            while (true) {
+                index = (index + 1) & mask;
+                if (values[index] == null) {
+                    break;
+                }
+                int home = hash(values[index].hashCode()) & mask;
+                boolean reachable = hole <= index ? hole < home && home <= index : hole < home || home <= index;
+                if (!reachable) {
+                    values[hole] = values[index];
+                    counts[hole] = counts[index];
+                    hole = index;
+                }
+            }
+            values[hole] = null;
+            counts[hole] = 0;
+        }
+
+        private void resize() {
+            String[] oldValues = values;
+            int[] oldCounts = counts;
+            values = new String[oldValues.length * 2];
+            counts = new int[oldValues.length * 2];
+            int mask = values.length - 1;
+            for (int i = 0; i < oldValues.length; i++) {
+                if (oldValues[i] != null) {
+                    int index = hash(oldValues[i].hashCode()) & mask;
+                    while (values[index] != null) {
+                        index = (index + 1) & mask;
+                    }
+                    values[index] = oldValues[i];
+                    counts[index] = oldCounts[i];
+                }
+            }
+        }
+    }
+}
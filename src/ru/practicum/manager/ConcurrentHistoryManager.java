@@ -0,0 +1,63 @@
+package ru.practicum.manager;
+
+import ru.practicum.model.Task;
+
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+ * Связный список с индексом по ID из InMemoryHistoryManager под блокировкой: запись остаётся O(1)
+ * при любой длине истории. Чтение отдаёт готовый неизменяемый снимок без блокировки,
+ * а пересобирает его под блокировкой только первый читатель после изменения.
+ */
+public class ConcurrentHistoryManager implements HistoryManager {
+
+    private final InMemoryHistoryManager history;
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile List<Task> snapshot = List.of();
+
+    public ConcurrentHistoryManager(int capacity, HistoryEvictionPolicy policy) {
+        this.history = new InMemoryHistoryManager(capacity, policy);
+    }
+
+    @Override
+    public void add(Task task) {
+        if (task == null) {
+            return;
+        }
+        lock.lock();
+        try {
+            history.add(task);
+            snapshot = null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void remove(int id) {
+        lock.lock();
+        try {
+            history.remove(id);
+            snapshot = null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        List<Task> current = snapshot;
+        if (current != null) {
+            return current;
+        }
+        lock.lock();
+        try {
+            current = history.getHistory();
+            snapshot = current;
+            return current;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
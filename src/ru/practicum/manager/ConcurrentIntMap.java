@@ -0,0 +1,51 @@
+package ru.practicum.manager;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Для конкурентного менеджера: чтение без блокировок важнее экономии на упаковке ключей
+class ConcurrentIntMap<V> implements IntMap<V> {
+
+    private final Map<Integer, V> map = new ConcurrentHashMap<>();
+
+    @Override
+    public V get(int key) {
+        return map.get(key);
+    }
+
+    @Override
+    public boolean containsKey(int key) {
+        return map.containsKey(key);
+    }
+
+    @Override
+    public V put(int key, V value) {
+        return map.put(key, value);
+    }
+
+    @Override
+    public V remove(int key) {
+        return map.remove(key);
+    }
+
+    @Override
+    public int size() {
+        return map.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return map.isEmpty();
+    }
+
+    @Override
+    public void clear() {
+        map.clear();
+    }
+
+    @Override
+    public Collection<V> values() {
+        return map.values();
+    }
+}
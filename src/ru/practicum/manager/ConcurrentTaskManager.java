@@ -0,0 +1,231 @@
+package ru.practicum.manager;
+
+import ru.practicum.model.Epic;
+import ru.practicum.model.Subtask;
+import ru.practicum.model.Task;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/*
+ * Чтение идёт из конкурентных коллекций без блокировок. Запись берёт полосу по ID эпика
+ * (для задач - по ID задачи), а изменения расписания дополнительно сериализуются
+ * общей блокировкой, чтобы проверка пересечений и вставка были атомарны. Задачи без
+ * времени начала общую блокировку не берут. Сам эпик не потокобезопасен: его подзадачи
+ * меняются и читаются только под полосой эпика.
+ * Порядок захвата всегда: полосы по возрастанию, затем расписание.
+ */
+public class ConcurrentTaskManager extends InMemoryTaskManager {
+
+    private static final int DEFAULT_STRIPES = 64;
+    private static final int DEFAULT_HISTORY_SIZE = 10;
+
+    private final ReentrantLock[] stripes;
+    private final ReentrantLock scheduleLock = new ReentrantLock();
+    private final AtomicInteger idGenerator = new AtomicInteger(1);
+
+    public ConcurrentTaskManager() {
+        this(DEFAULT_STRIPES);
+    }
+
+    public ConcurrentTaskManager(int stripeCount) {
+        super(Managers.getConcurrentHistory(DEFAULT_HISTORY_SIZE), true);
+        if (stripeCount <= 0) {
+            throw new IllegalArgumentException("Число полос должно быть положительным");
+        }
+        stripes = new ReentrantLock[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    @Override
+    protected int getNextID() {
+        return idGenerator.getAndIncrement();
+    }
+
+    // Новой задаче ID выдаётся до вставки, чтобы взять его полосу: иначе вставка
+    // разминулась бы с очисткой коллекций, которая держит все полосы
+    @Override
+    public int addTask(Task task) {
+        if (task == null) {
+            return -1;
+        }
+        int id = getNextID();
+        return withStripe(id, () -> withScheduleIfTimed(task, null, () -> super.addTask(task, id)));
+    }
+
+    @Override
+    public int addEpic(Epic epic) {
+        if (epic == null) {
+            return -1;
+        }
+        int id = getNextID();
+        return withStripe(id, () -> super.addEpic(epic, id));
+    }
+
+    @Override
+    public int addSubtask(Subtask subtask) {
+        if (subtask == null) {
+            return -1;
+        }
+        return withStripe(subtask.getEpicID(),
+                () -> withScheduleIfTimed(subtask, null, () -> super.addSubtask(subtask)));
+    }
+
+    @Override
+    public boolean updateTask(Task task) {
+        if (task == null) {
+            return false;
+        }
+        return withStripe(task.getId(),
+                () -> withScheduleIfTimed(task, tasks.get(task.getId()), () -> super.updateTask(task)));
+    }
+
+    @Override
+    public boolean updateEpic(Epic epic) {
+        if (epic == null) {
+            return false;
+        }
+        return withStripe(epic.getId(), () -> super.updateEpic(epic));
+    }
+
+    @Override
+    public boolean updateSubtask(Subtask subtask) {
+        if (subtask == null) {
+            return false;
+        }
+        return withStripe(subtask.getEpicID(),
+                () -> withScheduleIfTimed(subtask, subtasks.get(subtask.getId()), () -> super.updateSubtask(subtask)));
+    }
+
+    @Override
+    public List<Subtask> getEpicSubtasks(int epicId) {
+        return withStripe(epicId, () -> super.getEpicSubtasks(epicId));
+    }
+
+    @Override
+    public void deleteTasks() {
+        withAllStripes(() -> {
+            super.deleteTasks();
+            return null;
+        });
+    }
+
+    @Override
+    public void deleteEpics() {
+        withAllStripes(() -> {
+            super.deleteEpics();
+            return null;
+        });
+    }
+
+    @Override
+    public void deleteSubtasks() {
+        withAllStripes(() -> {
+            super.deleteSubtasks();
+            return null;
+        });
+    }
+
+    @Override
+    public boolean deleteTaskByID(int id) {
+        return withStripe(id, () -> withScheduleIfTimed(tasks.get(id), null, () -> super.deleteTaskByID(id)));
+    }
+
+    // Подзадачи эпика меняются только под его полосой, поэтому время эпика здесь стабильно
+    @Override
+    public boolean deleteEpicByID(int id) {
+        return withStripe(id, () -> withScheduleIfTimed(epics.get(id), null, () -> super.deleteEpicByID(id)));
+    }
+
+    @Override
+    public boolean deleteSubtaskByID(int id) {
+        Subtask subtask = subtasks.get(id);
+        if (subtask == null) {
+            return false;
+        }
+        return withStripe(subtask.getEpicID(),
+                () -> withScheduleIfTimed(subtasks.get(id), null, () -> super.deleteSubtaskByID(id)));
+    }
+
+    @Override
+    public int addTaskAtFreeSlot(Task task, LocalDateTime after) {
+        if (task instanceof Subtask) {
+            int epicId = ((Subtask) task).getEpicID();
+            return withStripe(epicId, () -> withSchedule(() -> super.addTaskAtFreeSlot(task, after)));
+        }
+        if (task == null || task instanceof Epic) {
+            return -1;
+        }
+        int id = getNextID();
+        return withStripe(id, () -> withSchedule(() -> {
+            LocalDateTime original = task.getStartTime();
+            task.setStartTime(findFreeSlot(after, task.getDuration() == null ? Duration.ZERO : task.getDuration()));
+            int added = super.addTask(task, id);
+            if (added == -1) {
+                task.setStartTime(original);
+            }
+            return added;
+        }));
+    }
+
+    @Override
+    public List<Integer> addSubtasksAtFreeSlots(List<Subtask> subtasks, LocalDateTime after) {
+        return withAllStripes(() -> super.addSubtasksAtFreeSlots(subtasks, after));
+    }
+
+    @Override
+    protected boolean commitBatch(List<Task> staged, List<Integer> ids) {
+        return withAllStripes(() -> super.commitBatch(staged, ids));
+    }
+
+    private ReentrantLock stripeFor(int id) {
+        return stripes[Math.floorMod(id, stripes.length)];
+    }
+
+    private <T> T withStripe(int id, Supplier<T> action) {
+        ReentrantLock lock = stripeFor(id);
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private <T> T withSchedule(Supplier<T> action) {
+        scheduleLock.lock();
+        try {
+            return action.get();
+        } finally {
+            scheduleLock.unlock();
+        }
+    }
+
+    // Расписание сериализуется, только если старая или новая версия стоит во времени
+    private <T> T withScheduleIfTimed(Task task, Task previous, Supplier<T> action) {
+        boolean timed = (task != null && task.getStartTime() != null)
+                || (previous != null && previous.getStartTime() != null);
+        return timed ? withSchedule(action) : action.get();
+    }
+
+    private <T> T withAllStripes(Supplier<T> action) {
+        int locked = 0;
+        try {
+            for (ReentrantLock lock : stripes) {
+                lock.lock();
+                locked++;
+            }
+            return withSchedule(action);
+        } finally {
+            for (int i = locked - 1; i >= 0; i--) {
+                stripes[i].unlock();
+            }
+        }
+    }
+}
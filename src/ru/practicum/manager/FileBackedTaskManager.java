@@ -1,208 +1,699 @@
 package ru.practicum.manager;
 
+import ru.practicum.metrics.Counter;
+import ru.practicum.metrics.LatencyHistogram;
+import ru.practicum.metrics.MetricsRegistry;
 import ru.practicum.model.*;
 
 import java.io.*;
 import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
 import java.util.*;
+import java.util.function.Consumer;
 
-public class FileBackedTaskManager extends InMemoryTaskManager {
+public class FileBackedTaskManager extends InMemoryTaskManager implements AutoCloseable {
+
+    private static final int DEFAULT_COMPACTION_THRESHOLD = 1000;
+    static final String CSV_HEADER = "id,type,name,status,description,startTime,duration,epic";
 
     private final File file;
+    private final SnapshotFormat format;
+    private final TaskJournal journal;
+    private final int compactionThreshold;
+    private final AsyncSnapshotWriter asyncWriter;
+    private final boolean readOnly;
+    private List<Integer> journaledHistory = new ArrayList<>();
+    private volatile LatencyHistogram saveLatency;
+    private volatile Counter savedBytes;
+    private boolean closed;
+
+    // Поколение снимка выдаётся под монитором вместе с его сборкой, а запись в файл идёт
+    // под fileLock: снимок старше уже записанного отбрасывается
+    private final Object fileLock = new Object();
+    private long snapshotGeneration;
+    private long writtenGeneration;
 
     public FileBackedTaskManager(File file) {
+        this(file, detectFormat(file));
+    }
+
+    public FileBackedTaskManager(File file, SnapshotFormat format) {
+        this(file, format, 0, 0, 0, 0, false, true);
+    }
+
+    private FileBackedTaskManager(File file, SnapshotFormat format, int compactionThreshold,
+                                  long asyncDelayMillis, int asyncMaxDirtyOps, int loadParallelism,
+                                  boolean readOnly, boolean verifyChecksum) {
         super();
         this.file = file;
-        loadDataFromFile(file);
+        this.format = format;
+        this.journal = new TaskJournal(file);
+        this.compactionThreshold = compactionThreshold;
+        this.readOnly = readOnly;
+        loadDataFromFile(file, loadParallelism, verifyChecksum);
+        replayJournal();
+        journaledHistory = historyIds();
+        this.asyncWriter = asyncMaxDirtyOps > 0
+                ? new AsyncSnapshotWriter(this::writeSnapshotInBackground, asyncDelayMillis, asyncMaxDirtyOps)
+                : null;
+    }
+
+    // Формат не задан: сохраняем тот, в котором файл уже записан, новый файл пишем в CSV
+    static SnapshotFormat detectFormat(File file) {
+        return BinarySnapshotCodec.isBinary(file) ? SnapshotFormat.BINARY : SnapshotFormat.CSV;
     }
 
     public static FileBackedTaskManager loadFromFile(File file) {
         return new FileBackedTaskManager(file);
     }
 
+    // Журнал применяется только в памяти, без компактификации: файлы на диске не меняются
+    static FileBackedTaskManager readOnly(File file) {
+        return new FileBackedTaskManager(file, detectFormat(file), 0, 0, 0, 0, true, true);
+    }
+
+    public static FileBackedTaskManager withJournal(File file) {
+        return withJournal(file, DEFAULT_COMPACTION_THRESHOLD);
+    }
+
+    public static FileBackedTaskManager withJournal(File file, int compactionThreshold) {
+        return withJournal(file, detectFormat(file), compactionThreshold);
+    }
+
+    public static FileBackedTaskManager withJournal(File file, SnapshotFormat format, int compactionThreshold) {
+        if (compactionThreshold <= 0) {
+            throw new IllegalArgumentException("Порог компактификации должен быть положительным");
+        }
+        return new FileBackedTaskManager(file, format, compactionThreshold, 0, 0, 0, false, true);
+    }
+
+    public static FileBackedTaskManager withAsyncSave(File file, SnapshotFormat format,
+                                                      long delayMillis, int maxDirtyOps) {
+        if (delayMillis < 0 || maxDirtyOps <= 0) {
+            throw new IllegalArgumentException("Некорректные параметры фоновой записи");
+        }
+        return new FileBackedTaskManager(file, format, 0, delayMillis, maxDirtyOps, 0, false, true);
+    }
+
+    public static FileBackedTaskManager withParallelLoad(File file, SnapshotFormat format, int parallelism) {
+        return withParallelLoad(file, format, parallelism, true);
+    }
+
+    // Без проверки контрольной суммы, если вызывающий уже проверил файл, например через отображение в память
+    static FileBackedTaskManager withParallelLoad(File file, SnapshotFormat format, int parallelism,
+                                                  boolean verifyChecksum) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Число потоков загрузки должно быть положительным");
+        }
+        return new FileBackedTaskManager(file, format, 0, 0, 0, parallelism, false, verifyChecksum);
+    }
+
     @Override
-    public int addTask(Task task) {
+    public synchronized int addTask(Task task) {
+        ensureOpen();
         int id = super.addTask(task);
-        save();
+        if (id != -1) {
+            persistUpsert(task);
+        }
         return id;
     }
 
     @Override
-    public int addEpic(Epic epic) {
+    public synchronized int addEpic(Epic epic) {
+        ensureOpen();
         int id = super.addEpic(epic);
-        save();
+        if (id != -1) {
+            persistUpsert(epic);
+        }
         return id;
     }
 
     @Override
-    public int addSubtask(Subtask subtask) {
+    public synchronized int addSubtask(Subtask subtask) {
+        ensureOpen();
         int id = super.addSubtask(subtask);
-        save();
+        if (id != -1) {
+            persistUpsert(subtask);
+        }
         return id;
     }
 
     @Override
-    public boolean updateTask(Task task) {
+    public synchronized boolean updateTask(Task task) {
+        ensureOpen();
         boolean result = super.updateTask(task);
-        save();
+        if (result) {
+            persistUpsert(task);
+        }
         return result;
     }
 
     @Override
-    public boolean updateEpic(Epic epic) {
+    public synchronized boolean updateEpic(Epic epic) {
+        ensureOpen();
         boolean result = super.updateEpic(epic);
-        save();
+        if (result) {
+            persistUpsert(epics.get(epic.getId()));
+        }
         return result;
     }
 
     @Override
-    public boolean updateSubtask(Subtask subtask) {
+    public synchronized boolean updateSubtask(Subtask subtask) {
+        ensureOpen();
         boolean result = super.updateSubtask(subtask);
-        save();
+        if (result) {
+            persistUpsert(subtask);
+        }
         return result;
     }
 
     @Override
-    public boolean deleteTaskByID(int id) {
+    public synchronized boolean deleteTaskByID(int id) {
+        ensureOpen();
         boolean result = super.deleteTaskByID(id);
-        save();
+        if (result) {
+            persist(TaskJournal.DELETE, String.valueOf(id));
+        }
         return result;
     }
 
     @Override
-    public boolean deleteEpicByID(int id) {
+    public synchronized boolean deleteEpicByID(int id) {
+        ensureOpen();
         boolean result = super.deleteEpicByID(id);
-        save();
+        if (result) {
+            persist(TaskJournal.DELETE, String.valueOf(id));
+        }
         return result;
     }
 
     @Override
-    public boolean deleteSubtaskByID(int id) {
+    public synchronized boolean deleteSubtaskByID(int id) {
+        ensureOpen();
         boolean result = super.deleteSubtaskByID(id);
-        save();
+        if (result) {
+            persist(TaskJournal.DELETE, String.valueOf(id));
+        }
         return result;
     }
 
     @Override
-    public void deleteTasks() {
+    public synchronized void deleteTasks() {
+        ensureOpen();
         super.deleteTasks();
-        save();
+        persist(TaskJournal.CLEAR, TaskType.TASK.name());
     }
 
     @Override
-    public void deleteEpics() {
+    public synchronized void deleteEpics() {
+        ensureOpen();
         super.deleteEpics();
-        save();
+        persist(TaskJournal.CLEAR, TaskType.EPIC.name());
     }
 
     @Override
-    public void deleteSubtasks() {
+    public synchronized void deleteSubtasks() {
+        ensureOpen();
         super.deleteSubtasks();
-        save();
+        persist(TaskJournal.CLEAR, TaskType.SUBTASK.name());
     }
 
-    public void save() {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file, StandardCharsets.UTF_8))) {
-            writer.write("id,type,name,status,description,startTime,duration,epic\n");
+    // Пакет резервирует ID вне монитора менеджера, поэтому выдача тоже под ним
+    @Override
+    protected synchronized int getNextID() {
+        return super.getNextID();
+    }
 
-            for (Task task : getTasks()) {
-                writer.write(task.toCSVString() + "\n");
+    @Override
+    protected synchronized boolean commitBatch(List<Task> staged, List<Integer> ids) {
+        ensureOpen();
+        boolean result = super.commitBatch(staged, ids);
+        if (result && !staged.isEmpty()) {
+            StringBuilder records = new StringBuilder();
+            for (Task task : staged) {
+                if (task instanceof Epic) {
+                    records.append(TaskJournal.record(TaskJournal.UPSERT, task.toCSVString()));
+                }
             }
-            for (Epic epic : getEpics()) {
-                writer.write(epic.toCSVString() + "\n");
+            for (Task task : staged) {
+                if (!(task instanceof Epic)) {
+                    records.append(TaskJournal.record(TaskJournal.UPSERT, task.toCSVString()));
+                }
+            }
+            persistRecords(records);
+        }
+        return result;
+    }
+
+    // Поиск слота и вставка под одним монитором, чтобы найденный слот не заняли между ними
+    @Override
+    public synchronized int addTaskAtFreeSlot(Task task, LocalDateTime after) {
+        ensureOpen();
+        return super.addTaskAtFreeSlot(task, after);
+    }
+
+    @Override
+    public synchronized List<Integer> addSubtasksAtFreeSlots(List<Subtask> subtasks, LocalDateTime after) {
+        ensureOpen();
+        return super.addSubtasksAtFreeSlots(subtasks, after);
+    }
+
+    private void persistUpsert(Task task) {
+        persistRecords(compactionThreshold == 0 ? null
+                : new StringBuilder(TaskJournal.record(TaskJournal.UPSERT, task.toCSVString())));
+    }
+
+    private void persist(String operation, String payload) {
+        persistRecords(new StringBuilder(TaskJournal.record(operation, payload)));
+    }
+
+    private void persistRecords(StringBuilder records) {
+        if (asyncWriter != null) {
+            asyncWriter.markDirty();
+            return;
+        }
+        if (compactionThreshold == 0) {
+            save();
+            return;
+        }
+
+        List<Integer> historyIds = historyIds();
+        if (!historyIds.equals(journaledHistory)) {
+            StringBuilder ids = new StringBuilder();
+            for (int id : historyIds) {
+                ids.append(id).append(',');
             }
-            for (Subtask subtask : getSubtasks()) {
-                writer.write(subtask.toCSVString() + "\n");
+            records.append(TaskJournal.record(TaskJournal.HISTORY, ids.toString()));
+            journaledHistory = historyIds;
+        }
+        journal.append(records.toString());
+
+        if (journal.size() >= compactionThreshold) {
+            compact();
+        }
+    }
+
+    @Override
+    public synchronized Task getTaskByID(int id) {
+        return super.getTaskByID(id);
+    }
+
+    @Override
+    public synchronized Epic getEpicByID(int id) {
+        return super.getEpicByID(id);
+    }
+
+    @Override
+    public synchronized Subtask getSubtaskByID(int id) {
+        return super.getSubtaskByID(id);
+    }
+
+    public int getPendingMutations() {
+        return asyncWriter != null ? asyncWriter.getPendingMutations() : 0;
+    }
+
+    public void flush() {
+        if (asyncWriter != null) {
+            asyncWriter.flush();
+        }
+    }
+
+    // После close() изменения бросают IllegalStateException: иначе они применились бы в памяти,
+    // а фоновая запись уже остановлена. Флаг ставится под монитором, поэтому каждое изменение
+    // либо успевает попасть в последнюю запись, либо отклоняется целиком
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
             }
+            closed = true;
+        }
+        if (asyncWriter != null) {
+            asyncWriter.close();
+        }
+    }
 
-            List<Task> history = getHistory();
-            if (!history.isEmpty()) {
-                writer.write("\nHISTORY:\n");
-                for (Task task : history) {
-                    writer.write(task.getId() + "\n");
-                }
+    private void ensureOpen() {
+        if (readOnly) {
+            throw new IllegalStateException("Снимок открыт только для чтения: " + file);
+        }
+        if (closed) {
+            throw new IllegalStateException("Менеджер закрыт: " + file);
+        }
+    }
+
+    // Снимок собирается в памяти под монитором менеджера, а в файл пишется уже без него.
+    // Если тем временем save() записал более новый снимок, этот просто отбрасывается
+    private int writeSnapshotInBackground() {
+        int captured;
+        long generation;
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        synchronized (this) {
+            captured = asyncWriter.getPendingMutations();
+            generation = ++snapshotGeneration;
+            try {
+                export(buffer, format);
+            } catch (IOException e) {
+                throw new ManagerSaveException("Не удалось сохранить данные в файл", e);
             }
+        }
+        writeSnapshotFile(generation, buffer::writeTo);
+        return captured;
+    }
 
-        } catch (IOException e) {
-            throw new ManagerSaveException("Не удалось сохранить данные в файл", e);
+    private void writeSnapshotFile(long generation, AtomicSnapshotFile.Body body) {
+        synchronized (fileLock) {
+            if (generation < writtenGeneration) {
+                return;
+            }
+            long start = System.nanoTime();
+            long written = AtomicSnapshotFile.write(file, body);
+            writtenGeneration = generation;
+            recordSave(start, written);
+        }
+    }
+
+    public synchronized void compact() {
+        save();
+        journal.truncate();
+        journaledHistory = historyIds();
+    }
+
+    private List<Integer> historyIds() {
+        List<Integer> ids = new ArrayList<>();
+        for (Task task : getHistory()) {
+            ids.add(task.getId());
+        }
+        return ids;
+    }
+
+    public synchronized void save() {
+        writeSnapshotFile(++snapshotGeneration, out -> export(out, format));
+    }
+
+    @Override
+    void instrument(MetricsRegistry registry) {
+        super.instrument(registry);
+        registry.gauge("snapshot.pendingMutations", this::getPendingMutations);
+        registry.gauge("journal.size", journal::size);
+        savedBytes = registry.counter("snapshot.bytes");
+        saveLatency = registry.histogram("snapshot.save");
+    }
+
+    private void recordSave(long start, long written) {
+        LatencyHistogram latency = saveLatency;
+        if (latency != null) {
+            latency.record(System.nanoTime() - start);
+            savedBytes.add(written);
         }
     }
 
-    private void loadDataFromFile(File file) {
+    public void writeSnapshot(File target, SnapshotFormat targetFormat) {
+        AtomicSnapshotFile.write(target, out -> export(out, targetFormat));
+    }
+
+    public void export(OutputStream out, SnapshotFormat exportFormat) throws IOException {
+        if (exportFormat == SnapshotFormat.BINARY) {
+            BufferedOutputStream buffered = new BufferedOutputStream(out);
+            BinarySnapshotCodec.write(buffered, tasks.values(), epics.values(), subtasks.values(), getHistory());
+            buffered.flush();
+        } else {
+            Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+            exportCsv(writer);
+            writer.flush();
+        }
+    }
+
+    // Записи пишутся прямо из внутренних хранилищ, без промежуточных копий списков
+    public void exportCsv(Writer target) throws IOException {
+        BufferedWriter writer = new BufferedWriter(target);
+        writer.write(CSV_HEADER);
+        writer.write('\n');
+
+        for (Task task : tasks.values()) {
+            writer.write(task.toCSVString());
+            writer.write('\n');
+        }
+        for (Epic epic : epics.values()) {
+            writer.write(epic.toCSVString());
+            writer.write('\n');
+        }
+        for (Subtask subtask : subtasks.values()) {
+            writer.write(subtask.toCSVString());
+            writer.write('\n');
+        }
+
+        List<Task> history = getHistory();
+        if (!history.isEmpty()) {
+            writer.write("\nHISTORY:\n");
+            for (Task task : history) {
+                writer.write(Integer.toString(task.getId()));
+                writer.write('\n');
+            }
+        }
+        writer.flush();
+    }
+
+    // Импорт заменяет текущее состояние целиком: задачи, индексы, историю и счётчик ID.
+    // Поток сначала разбирается полностью, поэтому ошибка посреди него оставляет прежние данные
+    public synchronized void importFrom(InputStream in) throws IOException {
+        ensureOpen();
+        BufferedInputStream buffered = new BufferedInputStream(in);
+        buffered.mark(BinarySnapshotCodec.MAGIC.length);
+        byte[] magic = buffered.readNBytes(BinarySnapshotCodec.MAGIC.length);
+        buffered.reset();
+
+        List<Task> parsed = new ArrayList<>();
+        List<Integer> historyIds = new ArrayList<>();
+        if (Arrays.equals(BinarySnapshotCodec.MAGIC, magic)) {
+            BinarySnapshotCodec.read(buffered, parsed::add, historyIds::addAll);
+        } else {
+            readCsv(new BufferedReader(new InputStreamReader(buffered, StandardCharsets.UTF_8)),
+                    parsed::add, historyIds::addAll);
+        }
+
+        clearAll();
+        restoreAll(parsed);
+        restoreHistory(historyIds);
+        compact();
+    }
+
+    private void loadDataFromFile(File file, int parallelism, boolean verifyChecksum) {
         if (!file.exists()) {
             return;
         }
+        if (verifyChecksum) {
+            AtomicSnapshotFile.verify(file);
+        }
+        if (BinarySnapshotCodec.isBinary(file)) {
+            loadBinarySnapshot(file);
+            return;
+        }
+        if (parallelism > 0 && file.length() <= Integer.MAX_VALUE) {
+            loadCsvInParallel(file, parallelism);
+            return;
+        }
 
         try (BufferedReader reader = new BufferedReader(new FileReader(file, StandardCharsets.UTF_8))) {
-            String line;
-            boolean inHistory = false;
-            List<Integer> historyIds = new ArrayList<>();
-
-            while ((line = reader.readLine()) != null) {
-                line = line.trim();
-                if (line.isEmpty()) {
-                    continue;
-                }
+            readCsv(reader, this::restoreTask, this::restoreHistory);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Не удалось загрузить данные из файла", e);
+        }
+    }
 
-                if (line.equals("HISTORY:")) {
-                    inHistory = true;
-                    continue;
-                }
+    private static void readCsv(BufferedReader reader, Consumer<Task> taskConsumer,
+                                Consumer<List<Integer>> historyConsumer) throws IOException {
+        String line;
+        boolean inHistory = false;
+        List<Integer> historyIds = new ArrayList<>();
 
-                if (inHistory) {
-                    try {
-                        historyIds.add(Integer.parseInt(line));
-                    } catch (NumberFormatException ignored) {
-                    }
-                    continue;
-                }
+        while ((line = reader.readLine()) != null) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
 
-                if (line.startsWith("id,")) {
-                    continue;
-                }
+            if (line.equals("HISTORY:")) {
+                inHistory = true;
+                continue;
+            }
 
-                Task task = Task.fromString(line);
-                if (task == null) {
-                    continue;
+            if (inHistory) {
+                try {
+                    historyIds.add(Integer.parseInt(line));
+                } catch (NumberFormatException ignored) {
                 }
+                continue;
+            }
 
-                if (task instanceof Epic) {
-                    epics.put(task.getId(), (Epic) task);
-                } else if (task instanceof Subtask) {
-                    Subtask subtask = (Subtask) task;
-                    subtasks.put(subtask.getId(), subtask);
-                    Epic epic = epics.get(subtask.getEpicID());
-                    if (epic != null) {
-                        epic.addSubtask(subtask);
-                    }
-                } else {
-                    tasks.put(task.getId(), task);
-                }
+            if (line.startsWith("id,")) {
+                continue;
+            }
 
-                if (task.getId() >= nextID) {
-                    nextID = task.getId() + 1;
-                }
+            Task task = Task.fromString(line);
+            if (task != null) {
+                taskConsumer.accept(task);
             }
+        }
 
-            for (int id : historyIds) {
-                Task task = tasks.get(id);
-                if (task != null) {
-                    historyManager.add(task);
-                    continue;
-                }
-                Epic epic = epics.get(id);
-                if (epic != null) {
-                    historyManager.add(epic);
-                    continue;
-                }
-                Subtask subtask = subtasks.get(id);
-                if (subtask != null) {
-                    historyManager.add(subtask);
-                }
+        historyConsumer.accept(historyIds);
+    }
+
+    private void loadCsvInParallel(File file, int parallelism) {
+        ParallelCsvLoader.Result result;
+        try {
+            result = ParallelCsvLoader.load(file, parallelism);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Не удалось загрузить данные из файла", e);
+        }
+        restoreAll(result.tasks);
+        restoreHistory(result.history);
+    }
+
+    // Эпики восстанавливаются раньше подзадач, чтобы те сразу привязались к своим эпикам
+    private void restoreAll(List<Task> parsed) {
+        for (Task task : parsed) {
+            if (task instanceof Epic) {
+                restoreTask(task);
             }
+        }
+        for (Task task : parsed) {
+            if (!(task instanceof Epic)) {
+                restoreTask(task);
+            }
+        }
+    }
 
+    private void loadBinarySnapshot(File file) {
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+            BinarySnapshotCodec.read(in, this::restoreTask, this::restoreHistory);
         } catch (IOException e) {
             throw new ManagerSaveException("Не удалось загрузить данные из файла", e);
         }
     }
-}
\ No newline at end of file
+
+    private void restoreHistory(List<Integer> historyIds) {
+        for (Task task : getHistory()) {
+            historyManager.remove(task.getId());
+        }
+        for (int id : historyIds) {
+            Task task = tasks.get(id);
+            if (task != null) {
+                historyManager.add(task);
+                continue;
+            }
+            Epic epic = epics.get(id);
+            if (epic != null) {
+                historyManager.add(epic);
+                continue;
+            }
+            Subtask subtask = subtasks.get(id);
+            if (subtask != null) {
+                historyManager.add(subtask);
+            }
+        }
+    }
+
+    private void replayJournal() {
+        List<String> records = journal.readAll();
+        if (records.isEmpty()) {
+            return;
+        }
+
+        for (String record : records) {
+            int separator = record.indexOf(',');
+            if (separator < 0) {
+                continue;
+            }
+            String operation = record.substring(0, separator);
+            String payload = record.substring(separator + 1);
+
+            switch (operation) {
+                case TaskJournal.UPSERT:
+                    replayUpsert(Task.fromString(payload));
+                    break;
+                case TaskJournal.DELETE:
+                    replayDelete(payload);
+                    break;
+                case TaskJournal.CLEAR:
+                    replayClear(payload);
+                    break;
+                case TaskJournal.HISTORY:
+                    replayHistory(payload);
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        // Журнал идемпотентен, поэтому сбой между записью снимка и очисткой журнала безопасен
+        if (!readOnly) {
+            compact();
+        }
+    }
+
+    private void replayUpsert(Task task) {
+        if (task == null) {
+            return;
+        }
+        if (task instanceof Epic) {
+            if (!super.updateEpic((Epic) task)) {
+                restoreTask(task);
+            }
+        } else if (task instanceof Subtask) {
+            Subtask subtask = (Subtask) task;
+            if (!super.updateSubtask(subtask) && !subtasks.containsKey(subtask.getId())) {
+                restoreTask(subtask);
+                Epic epic = epics.get(subtask.getEpicID());
+                if (epic != null) {
+                    updateEpicStatus(epic);
+                }
+            }
+        } else if (!super.updateTask(task) && !tasks.containsKey(task.getId())) {
+            restoreTask(task);
+        }
+    }
+
+    private void replayDelete(String payload) {
+        int id;
+        try {
+            id = Integer.parseInt(payload.trim());
+        } catch (NumberFormatException e) {
+            return;
+        }
+        if (!super.deleteTaskByID(id) && !super.deleteEpicByID(id)) {
+            super.deleteSubtaskByID(id);
+        }
+    }
+
+    private void replayClear(String payload) {
+        switch (payload.trim()) {
+            case "TASK":
+                super.deleteTasks();
+                break;
+            case "EPIC":
+                super.deleteEpics();
+                break;
+            case "SUBTASK":
+                super.deleteSubtasks();
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void replayHistory(String payload) {
+        List<Integer> historyIds = new ArrayList<>();
+        for (String part : payload.split(",")) {
+            if (!part.isEmpty()) {
+                try {
+                    historyIds.add(Integer.parseInt(part));
+                } catch (NumberFormatException ignored) {
+                }
+            }
+        }
+        restoreHistory(historyIds);
+    }
+}
@@ -0,0 +1,8 @@
+package ru.practicum.manager;
+
+public enum HistoryEvictionPolicy {
+    // Повторный просмотр переносит задачу в конец, вытесняется давно не просмотренная
+    LEAST_RECENTLY_VIEWED,
+    // Повторный просмотр не меняет порядок, вытесняется просмотренная первой
+    FIRST_VIEWED
+}
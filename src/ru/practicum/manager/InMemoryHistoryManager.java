@@ -19,23 +19,54 @@ public class InMemoryHistoryManager implements HistoryManager {
     private Node head;
     private Node tail;
 
-    private final Map<Integer, Node> historyMap = new HashMap<>();
+    private final IntMap<Node> historyMap = new IntHashMap<>();
+
+    // Неизменяемый снимок живёт до следующего изменения истории
+    private List<Task> snapshot = List.of();
 
     private static final int MAX_HISTORY_SIZE = 10;
 
+    private final int capacity;
+    private final HistoryEvictionPolicy policy;
+
+    public InMemoryHistoryManager() {
+        this(MAX_HISTORY_SIZE);
+    }
+
+    public InMemoryHistoryManager(int capacity) {
+        this(capacity, HistoryEvictionPolicy.LEAST_RECENTLY_VIEWED);
+    }
+
+    public InMemoryHistoryManager(int capacity, HistoryEvictionPolicy policy) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Размер истории должен быть положительным");
+        }
+        if (policy == null) {
+            throw new IllegalArgumentException("Политика вытеснения обязательна");
+        }
+        this.capacity = capacity;
+        this.policy = policy;
+    }
+
     @Override
     public void add(Task task) {
         if (task == null) {
             return;
         }
 
-        if (historyMap.containsKey(task.getId())) {
-            remove(task.getId());
+        Node existing = historyMap.get(task.getId());
+        if (existing != null && policy == HistoryEvictionPolicy.FIRST_VIEWED) {
+            existing.task = task;
+            snapshot = null;
+            return;
+        }
+        if (existing != null) {
+            removeNode(existing);
         }
 
         linkLast(task);
 
-        if (historyMap.size() > MAX_HISTORY_SIZE) {
+        if (historyMap.size() > capacity) {
             if (head != null) {
                 removeNode(head);
             }
@@ -55,6 +86,7 @@ public class InMemoryHistoryManager implements HistoryManager {
         }
 
         historyMap.put(task.getId(), newNode);
+        snapshot = null;
     }
 
     @Override
@@ -84,11 +116,19 @@ public class InMemoryHistoryManager implements HistoryManager {
         }
 
         historyMap.remove(node.task.getId());
+        snapshot = null;
+    }
+
+    int size() {
+        return historyMap.size();
     }
 
     @Override
     public List<Task> getHistory() {
-        List<Task> historyList = new ArrayList<>();
+        if (snapshot != null) {
+            return snapshot;
+        }
+        List<Task> historyList = new ArrayList<>(historyMap.size());
         Node current = head;
 
         while (current != null) {
@@ -96,6 +136,7 @@ public class InMemoryHistoryManager implements HistoryManager {
             current = current.next;
         }
 
-        return historyList;
+        snapshot = Collections.unmodifiableList(historyList);
+        return snapshot;
     }
 }
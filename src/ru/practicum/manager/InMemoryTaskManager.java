@@ -1,72 +1,202 @@
 package ru.practicum.manager;
 
+import ru.practicum.metrics.Counter;
+import ru.practicum.metrics.LatencyHistogram;
+import ru.practicum.metrics.MetricsRegistry;
 import ru.practicum.model.*;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 public class InMemoryTaskManager implements TaskManager {
-    protected final Map<Integer, Task> tasks = new HashMap<>();
-    protected final Map<Integer, Epic> epics = new HashMap<>();
-    protected final Map<Integer, Subtask> subtasks = new HashMap<>();
+    protected final IntMap<Task> tasks;
+    protected final IntMap<Epic> epics;
+    protected final IntMap<Subtask> subtasks;
     protected final HistoryManager historyManager;
+    protected final PartitionedHistoryService sessionHistories;
     protected int nextID = 1;
 
-    private final TreeSet<Task> prioritizedTasks = new TreeSet<>((t1, t2) -> {
-        LocalDateTime start1 = t1.getStartTime();
-        LocalDateTime start2 = t2.getStartTime();
+    private static final int SESSION_HISTORY_SIZE = 10;
+    private static final int SESSION_HISTORY_BUDGET = 100_000;
+    private static final int DEFAULT_EVENT_CAPACITY = 1024;
+    private static final int DEFAULT_EVENT_BATCH = 64;
 
-        if (start1 == null && start2 == null) {
-            return Integer.compare(t1.getId(), t2.getId());
-        }
-        if (start1 == null) {
-            return 1;
-        }
-        if (start2 == null) {
-            return -1;
-        }
-        int cmp = start1.compareTo(start2);
-        return cmp != 0 ? cmp : Integer.compare(t1.getId(), t2.getId());
-    });
+    private final TimeSlotIndex prioritizedTasks;
+    private final StatusIndex statusIndex;
+
+    // Списки для частых опросов собираются один раз на версию данных
+    private final AtomicLong version = new AtomicLong();
+    private final SnapshotCache<Task> taskSnapshot = new SnapshotCache<>();
+    private final SnapshotCache<Epic> epicSnapshot = new SnapshotCache<>();
+    private final SnapshotCache<Subtask> subtaskSnapshot = new SnapshotCache<>();
+    private final SnapshotCache<Task> prioritizedSnapshot = new SnapshotCache<>();
+
+    private volatile Probes probes;
+
+    // Без подписчиков публикация сводится к проверке пустого списка
+    private final List<TaskEventSubscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final AtomicLong eventSequence = new AtomicLong();
+    // Последнее объявленное состояние каждой задачи, пока есть подписчики: задачу обычно меняют
+    // на месте и передают в update() тот же объект, поэтому прежнее состояние берётся отсюда
+    private final Map<Integer, Task> publishedStates = new ConcurrentHashMap<>();
 
     public InMemoryTaskManager() {
-        this.historyManager = Managers.getDefaultHistory();
+        this(Managers.getDefaultHistory(), false);
+    }
+
+    public InMemoryTaskManager(PartitionedHistoryService sessionHistories) {
+        this(Managers.getDefaultHistory(), sessionHistories, false);
+    }
+
+    protected InMemoryTaskManager(HistoryManager historyManager, boolean concurrent) {
+        this(historyManager, new PartitionedHistoryService(SESSION_HISTORY_SIZE, SESSION_HISTORY_BUDGET), concurrent);
+    }
+
+    protected InMemoryTaskManager(HistoryManager historyManager, PartitionedHistoryService sessionHistories,
+                                  boolean concurrent) {
+        this(historyManager, sessionHistories, concurrent ? new ConcurrentIntMap<>() : new IntHashMap<>(),
+                concurrent);
+    }
+
+    // Хранилище обычных задач подменяется, например, на компактное; эпики и подзадачи связаны ссылками
+    protected InMemoryTaskManager(HistoryManager historyManager, PartitionedHistoryService sessionHistories,
+                                  IntMap<Task> taskStore, boolean concurrent) {
+        this.historyManager = historyManager;
+        this.sessionHistories = sessionHistories;
+        this.tasks = taskStore;
+        this.epics = concurrent ? new ConcurrentIntMap<>() : new IntHashMap<>();
+        this.subtasks = concurrent ? new ConcurrentIntMap<>() : new IntHashMap<>();
+        this.prioritizedTasks = new TimeSlotIndex(concurrent, this::findStored);
+        this.statusIndex = new StatusIndex(concurrent, this::findStored);
+    }
+
+    public static InMemoryTaskManager withCompactStorage() {
+        return new InMemoryTaskManager(Managers.getDefaultHistory(),
+                new PartitionedHistoryService(SESSION_HISTORY_SIZE, SESSION_HISTORY_BUDGET),
+                new CompactTaskStore(), false);
+    }
+
+    // Вызывается после каждого изменения, уже видимого в хранилище
+    protected void modified() {
+        version.incrementAndGet();
     }
 
-    private int getNextID() {
+    protected int getNextID() {
         return nextID++;
     }
 
-    private void addTaskToPrioritized(Task task) {
-        if (task.getStartTime() != null) {
-            prioritizedTasks.add(task);
+    public TaskEventSubscription subscribe(Consumer<List<TaskEvent>> consumer) {
+        return subscribe(consumer, DEFAULT_EVENT_CAPACITY, DEFAULT_EVENT_BATCH, TaskEventSubscription.Overflow.BLOCK);
+    }
+
+    public TaskEventSubscription subscribe(Consumer<List<TaskEvent>> consumer, int capacity, int maxBatchSize,
+                                           TaskEventSubscription.Overflow overflow) {
+        TaskEventSubscription subscription = new TaskEventSubscription(consumer, capacity, maxBatchSize, overflow,
+                this::unsubscribe);
+        synchronized (publishedStates) {
+            subscriptions.add(subscription);
+            if (subscriptions.size() == 1) {
+                rememberStates(tasks.values());
+                rememberStates(epics.values());
+                rememberStates(subtasks.values());
+            }
         }
+        return subscription;
     }
 
-    private void removeTaskFromPrioritized(Task task) {
-        prioritizedTasks.remove(task);
+    private void unsubscribe(TaskEventSubscription subscription) {
+        synchronized (publishedStates) {
+            subscriptions.remove(subscription);
+            if (subscriptions.isEmpty()) {
+                publishedStates.clear();
+            }
+        }
     }
 
-    private boolean isIntersecting(Task task1, Task task2) {
-        if (task1.getStartTime() == null || task2.getStartTime() == null) {
-            return false;
+    // Состояние, объявленное событием раньше, не перетирается
+    private void rememberStates(Collection<? extends Task> stored) {
+        for (Task task : stored) {
+            publishedStates.putIfAbsent(task.getId(), TaskEvent.copyOf(task));
         }
-        LocalDateTime end1 = task1.getEndTime();
-        LocalDateTime end2 = task2.getEndTime();
-        return !end1.isBefore(task2.getStartTime()) && !end2.isBefore(task1.getStartTime());
     }
 
-    private boolean hasIntersections(Task newTask) {
-        if (newTask.getStartTime() == null) {
-            return false;
+    private Task previousState(Task stored) {
+        if (subscriptions.isEmpty()) {
+            return null;
+        }
+        Task published = publishedStates.get(stored.getId());
+        return published != null ? published : stored;
+    }
+
+    // Копии снимаются только при наличии подписчиков: объекты задач изменяемы
+    private void publish(TaskEvent.Kind kind, int taskId, Task before, Task after) {
+        if (subscriptions.isEmpty()) {
+            return;
         }
-        for (Task task : prioritizedTasks) {
-            if (isIntersecting(newTask, task)) {
-                return true;
+        if (kind != TaskEvent.Kind.HISTORY_TOUCHED) {
+            if (after != null) {
+                publishedStates.put(taskId, TaskEvent.copyOf(after));
+            } else {
+                publishedStates.remove(taskId);
             }
         }
-        return false;
+        TaskEvent event = new TaskEvent(eventSequence.incrementAndGet(), kind, taskId,
+                TaskEvent.copyOf(before), TaskEvent.copyOf(after));
+        for (TaskEventSubscription subscription : subscriptions) {
+            subscription.publish(event);
+        }
+    }
+
+    private void publishDeleted(Collection<? extends Task> removed) {
+        if (subscriptions.isEmpty()) {
+            return;
+        }
+        for (Task task : removed) {
+            publish(TaskEvent.Kind.DELETED, task.getId(), task, null);
+        }
+    }
+
+    private Task findStored(int id) {
+        Task task = tasks.get(id);
+        if (task == null) {
+            task = subtasks.get(id);
+        }
+        return task == null ? epics.get(id) : task;
+    }
+
+    private void addTaskToPrioritized(Task task) {
+        prioritizedTasks.add(task);
+    }
+
+    private void removeTaskFromPrioritized(Task task) {
+        prioritizedTasks.remove(task.getId());
+    }
+
+    private boolean hasIntersections(Task newTask) {
+        return hasIntersections(newTask, false);
+    }
+
+    private boolean hasIntersections(Task newTask, boolean update) {
+        Probes current = probes;
+        if (current == null) {
+            return checkIntersection(newTask, update);
+        }
+        long start = System.nanoTime();
+        boolean intersects = checkIntersection(newTask, update);
+        current.intersections.record(System.nanoTime() - start);
+        if (intersects) {
+            current.rejectedOverlaps.increment();
+        }
+        return intersects;
+    }
+
+    private boolean checkIntersection(Task task, boolean update) {
+        return update ? prioritizedTasks.hasIntersectionExceptOwnSlot(task) : prioritizedTasks.hasIntersection(task);
     }
 
     @Override
@@ -74,9 +204,24 @@ public class InMemoryTaskManager implements TaskManager {
         if (task == null || hasIntersections(task)) {
             return -1;
         }
-        task.setId(getNextID());
+        return storeTask(task, getNextID());
+    }
+
+    // ID выдан заранее: наследник может захватить блокировку под него до вставки
+    protected int addTask(Task task, int id) {
+        if (task == null || hasIntersections(task)) {
+            return -1;
+        }
+        return storeTask(task, id);
+    }
+
+    private int storeTask(Task task, int id) {
+        task.setId(id);
         tasks.put(task.getId(), task);
+        statusIndex.put(task);
         addTaskToPrioritized(task);
+        modified();
+        publish(TaskEvent.Kind.CREATED, task.getId(), null, task);
         return task.getId();
     }
 
@@ -85,8 +230,18 @@ public class InMemoryTaskManager implements TaskManager {
         if (epic == null) {
             return -1;
         }
-        epic.setId(getNextID());
+        return addEpic(epic, getNextID());
+    }
+
+    protected int addEpic(Epic epic, int id) {
+        if (epic == null) {
+            return -1;
+        }
+        epic.setId(id);
         epics.put(epic.getId(), epic);
+        statusIndex.put(epic);
+        modified();
+        publish(TaskEvent.Kind.CREATED, epic.getId(), null, epic);
         return epic.getId();
     }
 
@@ -98,10 +253,13 @@ public class InMemoryTaskManager implements TaskManager {
         int newId = getNextID();
         subtask.setId(newId);
         subtasks.put(newId, subtask);
+        statusIndex.put(subtask);
+        publish(TaskEvent.Kind.CREATED, newId, null, subtask);
         Epic epic = epics.get(subtask.getEpicID());
         epic.addSubtask(subtask);
         updateEpicStatus(epic);
         addTaskToPrioritized(subtask);
+        modified();
         return newId;
     }
 
@@ -110,13 +268,17 @@ public class InMemoryTaskManager implements TaskManager {
         if (task == null || !tasks.containsKey(task.getId())) {
             return false;
         }
-        if (hasIntersections(task)) {
+        if (hasIntersections(task, true)) {
             return false;
         }
         Task old = tasks.get(task.getId());
+        Task before = previousState(old);
         removeTaskFromPrioritized(old);
         tasks.put(task.getId(), task);
+        statusIndex.put(task);
         addTaskToPrioritized(task);
+        modified();
+        publish(TaskEvent.Kind.UPDATED, task.getId(), before, task);
         return true;
     }
 
@@ -126,8 +288,11 @@ public class InMemoryTaskManager implements TaskManager {
             return false;
         }
         Epic existing = epics.get(epic.getId());
+        Task before = subscriptions.isEmpty() ? null : TaskEvent.copyOf(existing);
         existing.setName(epic.getName());
         existing.setDescription(epic.getDescription());
+        modified();
+        publish(TaskEvent.Kind.UPDATED, existing.getId(), before, existing);
         return true;
     }
 
@@ -136,7 +301,7 @@ public class InMemoryTaskManager implements TaskManager {
         if (subtask == null || !subtasks.containsKey(subtask.getId())) {
             return false;
         }
-        if (hasIntersections(subtask)) {
+        if (hasIntersections(subtask, true)) {
             return false;
         }
         Subtask old = subtasks.get(subtask.getId());
@@ -144,12 +309,16 @@ public class InMemoryTaskManager implements TaskManager {
             return false;
         }
 
+        Task before = previousState(old);
         removeTaskFromPrioritized(old);
         subtasks.put(subtask.getId(), subtask);
+        statusIndex.put(subtask);
+        publish(TaskEvent.Kind.UPDATED, subtask.getId(), before, subtask);
         Epic epic = epics.get(subtask.getEpicID());
         epic.updateSubtask(old, subtask);
         updateEpicStatus(epic);
         addTaskToPrioritized(subtask);
+        modified();
         return true;
     }
 
@@ -158,6 +327,7 @@ public class InMemoryTaskManager implements TaskManager {
         Task task = tasks.get(id);
         if (task != null) {
             historyManager.add(task);
+            publish(TaskEvent.Kind.HISTORY_TOUCHED, id, null, task);
         }
         return task;
     }
@@ -167,6 +337,7 @@ public class InMemoryTaskManager implements TaskManager {
         Epic epic = epics.get(id);
         if (epic != null) {
             historyManager.add(epic);
+            publish(TaskEvent.Kind.HISTORY_TOUCHED, id, null, epic);
         }
         return epic;
     }
@@ -176,53 +347,97 @@ public class InMemoryTaskManager implements TaskManager {
         Subtask subtask = subtasks.get(id);
         if (subtask != null) {
             historyManager.add(subtask);
+            publish(TaskEvent.Kind.HISTORY_TOUCHED, id, null, subtask);
         }
         return subtask;
     }
 
+    // Чтение без записи в историю: для дашбордов, экспорта и опроса статусов
+    @Override
+    public Task peekTask(int id) {
+        return tasks.get(id);
+    }
+
+    @Override
+    public Epic peekEpic(int id) {
+        return epics.get(id);
+    }
+
+    @Override
+    public Subtask peekSubtask(int id) {
+        return subtasks.get(id);
+    }
+
+    @Override
+    public Task getTaskByID(int id, String sessionId) {
+        Task task = tasks.get(id);
+        sessionHistories.add(sessionId, task);
+        return task;
+    }
+
+    @Override
+    public Epic getEpicByID(int id, String sessionId) {
+        Epic epic = epics.get(id);
+        sessionHistories.add(sessionId, epic);
+        return epic;
+    }
+
+    @Override
+    public Subtask getSubtaskByID(int id, String sessionId) {
+        Subtask subtask = subtasks.get(id);
+        sessionHistories.add(sessionId, subtask);
+        return subtask;
+    }
+
     @Override
     public List<Task> getTasks() {
-        return new ArrayList<>(tasks.values());
+        return taskSnapshot.get(version.get(), tasks::values);
     }
 
     @Override
     public List<Epic> getEpics() {
-        return new ArrayList<>(epics.values());
+        return epicSnapshot.get(version.get(), epics::values);
     }
 
     @Override
     public List<Subtask> getSubtasks() {
-        return new ArrayList<>(subtasks.values());
+        return subtaskSnapshot.get(version.get(), subtasks::values);
     }
 
     @Override
     public List<Subtask> getEpicSubtasks(int epicId) {
-        return epics.getOrDefault(epicId, new Epic("", ""))
-                .getSubtaskList()
-                .stream()
-                .collect(Collectors.toList());
+        Epic epic = epics.get(epicId);
+        return epic == null ? List.of() : epic.getSubtaskList();
+    }
+
+    @Override
+    public List<Task> getTasksByStatus(Status status, TaskType type) {
+        return statusIndex.get(status, type);
+    }
+
+    @Override
+    public List<Subtask> getEpicSubtasksByStatus(int epicId, Status status) {
+        return statusIndex.getEpicSubtasks(epicId, status);
     }
 
     @Override
     public void deleteTasks() {
-        removeTasksFromHistory(tasks.keySet());
+        removeTasksFromHistory(tasks.values());
+        publishDeleted(tasks.values());
         for (Task task : tasks.values()) {
             removeTaskFromPrioritized(task);
         }
         tasks.clear();
+        statusIndex.clear(TaskType.TASK);
+        modified();
     }
 
     @Override
     public void deleteEpics() {
-        Set<Integer> subtaskIds = new HashSet<>();
-        for (Epic epic : epics.values()) {
-            for (Subtask subtask : epic.getSubtaskList()) {
-                subtaskIds.add(subtask.getId());
-            }
-        }
-
-        removeTasksFromHistory(epics.keySet());
-        removeTasksFromHistory(subtaskIds);
+        removeTasksFromHistory(epics.values());
+        removeTasksFromHistory(subtasks.values());
+        publishDeleted(subtasks.values());
+        publishDeleted(epics.values());
 
         for (Epic epic : epics.values()) {
             for (Subtask subtask : epic.getSubtaskList()) {
@@ -232,27 +447,36 @@ public class InMemoryTaskManager implements TaskManager {
 
         epics.clear();
         subtasks.clear();
+        statusIndex.clear(TaskType.EPIC);
+        statusIndex.clear(TaskType.SUBTASK);
+        modified();
     }
 
     @Override
     public void deleteSubtasks() {
-        removeTasksFromHistory(subtasks.keySet());
+        removeTasksFromHistory(subtasks.values());
+        publishDeleted(subtasks.values());
         for (Subtask subtask : subtasks.values()) {
             removeTaskFromPrioritized(subtask);
         }
         subtasks.clear();
+        statusIndex.clear(TaskType.SUBTASK);
         for (Epic epic : epics.values()) {
             epic.clearSubtasks();
-            epic.setStatus(Status.NEW);
+            updateEpicStatus(epic);
         }
+        modified();
     }
 
     @Override
     public boolean deleteTaskByID(int id) {
         Task removed = tasks.remove(id);
         if (removed != null) {
+            statusIndex.remove(id);
             removeTaskFromPrioritized(removed);
             removeTaskFromHistory(id);
+            modified();
+            publish(TaskEvent.Kind.DELETED, id, removed, null);
             return true;
         }
         return false;
@@ -270,8 +494,13 @@ public class InMemoryTaskManager implements TaskManager {
             removeTaskFromPrioritized(subtask);
             removeTaskFromHistory(subtask.getId());
         }
+        statusIndex.removeEpicSubtasks(id);
+        statusIndex.remove(id);
 
         removeTaskFromHistory(id);
+        modified();
+        publishDeleted(epic.getSubtaskList());
+        publish(TaskEvent.Kind.DELETED, id, epic, null);
         return true;
     }
 
@@ -283,14 +512,17 @@ public class InMemoryTaskManager implements TaskManager {
         }
 
         removeTaskFromPrioritized(subtask);
+        statusIndex.remove(id);
+        publish(TaskEvent.Kind.DELETED, id, subtask, null);
 
         Epic epic = epics.get(subtask.getEpicID());
         if (epic != null) {
-            epic.getSubtaskList().remove(subtask);
+            epic.removeSubtask(subtask);
             updateEpicStatus(epic);
         }
 
         removeTaskFromHistory(id);
+        modified();
         return true;
     }
 
@@ -299,44 +531,264 @@ public class InMemoryTaskManager implements TaskManager {
         return historyManager.getHistory();
     }
 
+    @Override
+    public List<Task> getHistory(String sessionId) {
+        return sessionHistories.getHistory(sessionId,
+                id -> tasks.containsKey(id) || epics.containsKey(id) || subtasks.containsKey(id));
+    }
+
     public List<Task> getPrioritizedTasks() {
-        return new ArrayList<>(prioritizedTasks);
+        return prioritizedSnapshot.get(version.get(), prioritizedTasks::getTasks);
     }
 
-    private void removeTaskFromHistory(int id) {
-        historyManager.remove(id);
+    @Override
+    public List<Task> getTasksBetween(LocalDateTime from, LocalDateTime to) {
+        if (from == null || to == null || to.isBefore(from)) {
+            throw new IllegalArgumentException("Некорректный интервал: " + from + " - " + to);
+        }
+        return prioritizedTasks.getTasksBetween(from, to);
     }
 
-    private void removeTasksFromHistory(Set<Integer> ids) {
-        for (int id : ids) {
-            historyManager.remove(id);
+    @Override
+    public List<Task> getNextTasks(LocalDateTime after, int limit) {
+        if (after == null || limit < 0) {
+            throw new IllegalArgumentException("Некорректные параметры выборки: " + after + ", " + limit);
         }
+        return prioritizedTasks.getNextTasks(after, limit);
     }
 
-    protected void updateEpicStatus(Epic epic) {
-        List<Subtask> list = epic.getSubtaskList();
-        if (list.isEmpty()) {
-            epic.setStatus(Status.NEW);
-            return;
+    @Override
+    public LocalDateTime findFreeSlot(LocalDateTime after, Duration duration) {
+        if (after == null || duration == null || duration.isNegative()) {
+            throw new IllegalArgumentException("Некорректные параметры поиска слота: " + after + ", " + duration);
+        }
+        return prioritizedTasks.findFreeSlots(after, List.of(duration)).get(0);
+    }
+
+    @Override
+    public int addTaskAtFreeSlot(Task task, LocalDateTime after) {
+        if (task == null || task instanceof Epic) {
+            return -1;
+        }
+        // Отклонённая задача возвращается вызывающему в исходном виде
+        LocalDateTime original = task.getStartTime();
+        task.setStartTime(findFreeSlot(after, durationOf(task)));
+        int id = task instanceof Subtask ? addSubtask((Subtask) task) : addTask(task);
+        if (id == -1) {
+            task.setStartTime(original);
+        }
+        return id;
+    }
+
+    @Override
+    public List<Integer> addSubtasksAtFreeSlots(List<Subtask> subtasks, LocalDateTime after) {
+        if (after == null || subtasks == null) {
+            throw new IllegalArgumentException("Некорректные параметры планирования подзадач");
+        }
+        List<Duration> durations = new ArrayList<>(subtasks.size());
+        for (Subtask subtask : subtasks) {
+            if (subtask == null) {
+                throw new IllegalArgumentException("Некорректные параметры планирования подзадач");
+            }
+            durations.add(durationOf(subtask));
+        }
+        List<LocalDateTime> slots = prioritizedTasks.findFreeSlots(after, durations);
+
+        List<Integer> ids = new ArrayList<>(subtasks.size());
+        LocalDateTime[] originalStarts = new LocalDateTime[subtasks.size()];
+        for (int i = 0; i < subtasks.size(); i++) {
+            originalStarts[i] = subtasks.get(i).getStartTime();
+        }
+        boolean committed = false;
+        try (TaskBatch batch = beginBatch()) {
+            for (int i = 0; i < subtasks.size(); i++) {
+                Subtask subtask = subtasks.get(i);
+                subtask.setStartTime(slots.get(i));
+                ids.add(batch.addSubtask(subtask));
+            }
+            committed = batch.commit();
+            return committed ? ids : new ArrayList<>();
+        } finally {
+            // Пакет не принят: ID он уже вернул сам, остаётся исходное время начала
+            if (!committed) {
+                for (int i = 0; i < subtasks.size(); i++) {
+                    subtasks.get(i).setStartTime(originalStarts[i]);
+                }
+            }
+        }
+    }
+
+    private static Duration durationOf(Task task) {
+        return task.getDuration() == null ? Duration.ZERO : task.getDuration();
+    }
+
+    @Override
+    public TaskBatch beginBatch() {
+        return new TaskBatch(this);
+    }
+
+    // ID пакета назначаются задачам здесь, под блокировкой наследника; отклонённый пакет
+    // возвращает задачам прежние ID
+    protected boolean commitBatch(List<Task> staged, List<Integer> ids) {
+        int[] originalIds = new int[staged.size()];
+        for (int i = 0; i < staged.size(); i++) {
+            originalIds[i] = staged.get(i).getId();
+            staged.get(i).setId(ids.get(i));
+        }
+        if (!validateBatch(staged)) {
+            for (int i = 0; i < staged.size(); i++) {
+                staged.get(i).setId(originalIds[i]);
+            }
+            return false;
+        }
+
+        for (Task task : staged) {
+            if (task instanceof Epic) {
+                restoreTask(task);
+            }
+        }
+        Set<Epic> affectedEpics = new HashSet<>();
+        for (Task task : staged) {
+            if (task instanceof Epic) {
+                continue;
+            }
+            restoreTask(task);
+            if (task instanceof Subtask) {
+                affectedEpics.add(epics.get(((Subtask) task).getEpicID()));
+            }
+        }
+        for (Epic epic : affectedEpics) {
+            updateEpicStatus(epic);
+        }
+        return true;
+    }
+
+    private boolean validateBatch(List<Task> staged) {
+        Set<Integer> stagedEpicIds = new HashSet<>();
+        List<Task> timed = new ArrayList<>();
+        for (Task task : staged) {
+            if (task instanceof Epic) {
+                stagedEpicIds.add(task.getId());
+            } else if (task.getStartTime() != null) {
+                timed.add(task);
+            }
+        }
+
+        for (Task task : staged) {
+            if (task instanceof Subtask) {
+                int epicId = ((Subtask) task).getEpicID();
+                if (!epics.containsKey(epicId) && !stagedEpicIds.contains(epicId)) {
+                    return false;
+                }
+            }
         }
 
-        boolean allNew = true;
-        boolean allDone = true;
-        for (Subtask s : list) {
-            if (s.getStatus() != Status.NEW) {
-                allNew = false;
+        // Пересечения с расписанием через индекс, а внутри пакета - одним проходом по отсортированным
+        timed.sort(Comparator.comparing(Task::getStartTime));
+        LocalDateTime maxEnd = null;
+        for (Task task : timed) {
+            if (hasIntersections(task)) {
+                return false;
             }
-            if (s.getStatus() != Status.DONE) {
-                allDone = false;
+            if (maxEnd != null && !task.getStartTime().isAfter(maxEnd)) {
+                return false;
+            }
+            LocalDateTime end = task.getEndTime() != null ? task.getEndTime() : task.getStartTime();
+            if (maxEnd == null || end.isAfter(maxEnd)) {
+                maxEnd = end;
             }
         }
+        return true;
+    }
 
-        if (allNew) {
-            epic.setStatus(Status.NEW);
-        } else if (allDone) {
-            epic.setStatus(Status.DONE);
+    protected void restoreTask(Task task) {
+        statusIndex.put(task);
+        if (task instanceof Epic) {
+            epics.put(task.getId(), (Epic) task);
+        } else if (task instanceof Subtask) {
+            Subtask subtask = (Subtask) task;
+            subtasks.put(subtask.getId(), subtask);
+            Epic epic = epics.get(subtask.getEpicID());
+            if (epic != null) {
+                epic.addSubtask(subtask);
+            }
+            addTaskToPrioritized(subtask);
         } else {
-            epic.setStatus(Status.IN_PROGRESS);
+            tasks.put(task.getId(), task);
+            addTaskToPrioritized(task);
+        }
+
+        if (task.getId() >= nextID) {
+            nextID = task.getId() + 1;
+        }
+        modified();
+        publish(TaskEvent.Kind.CREATED, task.getId(), null, task);
+    }
+
+    // Полный сброс перед заменой данных целиком, например при импорте снимка
+    protected void clearAll() {
+        publishDeleted(subtasks.values());
+        publishDeleted(epics.values());
+        publishDeleted(tasks.values());
+        removeTasksFromHistory(tasks.values());
+        removeTasksFromHistory(epics.values());
+        removeTasksFromHistory(subtasks.values());
+        sessionHistories.clear();
+        tasks.clear();
+        epics.clear();
+        subtasks.clear();
+        prioritizedTasks.clear();
+        for (TaskType type : TaskType.values()) {
+            statusIndex.clear(type);
+        }
+        nextID = 1;
+        modified();
+    }
+
+    private void removeTaskFromHistory(int id) {
+        historyManager.remove(id);
+    }
+
+    private void removeTasksFromHistory(Collection<? extends Task> removed) {
+        for (Task task : removed) {
+            historyManager.remove(task.getId());
+        }
+    }
+
+    protected void updateEpicStatus(Epic epic) {
+        Probes current = probes;
+        long start = current == null ? 0 : System.nanoTime();
+        Status status = epic.calculateStatus();
+        if (status != epic.getStatus()) {
+            Task before = subscriptions.isEmpty() ? null : TaskEvent.copyOf(epic);
+            epic.setStatus(status);
+            statusIndex.put(epic);
+            publish(TaskEvent.Kind.EPIC_STATUS_CHANGED, epic.getId(), before, epic);
+        }
+        if (current != null) {
+            current.epicStatus.record(System.nanoTime() - start);
+        }
+    }
+
+    // Подключает внутренние замеры; без реестра горячий путь проверяет только null
+    void instrument(MetricsRegistry registry) {
+        registry.gauge("tasks.size", tasks::size);
+        registry.gauge("epics.size", epics::size);
+        registry.gauge("subtasks.size", subtasks::size);
+        registry.gauge("prioritized.size", prioritizedTasks::size);
+        registry.gauge("history.size", () -> historyManager.getHistory().size());
+        probes = new Probes(registry);
+    }
+
+    private static class Probes {
+        final LatencyHistogram intersections;
+        final LatencyHistogram epicStatus;
+        final Counter rejectedOverlaps;
+
+        Probes(MetricsRegistry registry) {
+            intersections = registry.histogram("manager.hasIntersections");
+            epicStatus = registry.histogram("manager.updateEpicStatus");
+            rejectedOverlaps = registry.counter("manager.rejectedOverlaps");
         }
     }
-}
\ No newline at end of file
+}
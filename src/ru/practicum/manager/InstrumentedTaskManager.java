@@ -0,0 +1,375 @@
+package ru.practicum.manager;
+
+import ru.practicum.metrics.LatencyHistogram;
+import ru.practicum.metrics.MetricsRegistry;
+import ru.practicum.model.Epic;
+import ru.practicum.model.Status;
+import ru.practicum.model.Subtask;
+import ru.practicum.model.Task;
+import ru.practicum.model.TaskType;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/*
+ * Декоратор, замеряющий каждую операцию менеджера. Гистограммы по операциям берутся из реестра
+ * один раз в конструкторе, поэтому замер на горячем пути не выделяет память. Если под декоратором
+ * стандартный менеджер, к реестру подключаются и его внутренние замеры (проверка пересечений,
+ * пересчёт статуса эпика, запись снимка).
+ */
+public class InstrumentedTaskManager implements TaskManager {
+
+    // Своя гистограмма на каждый метод интерфейса; перегрузки с сессией помечены суффиксом
+    private enum Operation {
+        ADD_TASK("addTask"),
+        ADD_EPIC("addEpic"),
+        ADD_SUBTASK("addSubtask"),
+        UPDATE_TASK("updateTask"),
+        UPDATE_EPIC("updateEpic"),
+        UPDATE_SUBTASK("updateSubtask"),
+        GET_TASK("getTaskByID"),
+        GET_EPIC("getEpicByID"),
+        GET_SUBTASK("getSubtaskByID"),
+        GET_TASK_IN_SESSION("getTaskByID.session"),
+        GET_EPIC_IN_SESSION("getEpicByID.session"),
+        GET_SUBTASK_IN_SESSION("getSubtaskByID.session"),
+        PEEK_TASK("peekTask"),
+        PEEK_EPIC("peekEpic"),
+        PEEK_SUBTASK("peekSubtask"),
+        GET_TASKS("getTasks"),
+        GET_EPICS("getEpics"),
+        GET_SUBTASKS("getSubtasks"),
+        GET_EPIC_SUBTASKS("getEpicSubtasks"),
+        GET_TASKS_BY_STATUS("getTasksByStatus"),
+        GET_EPIC_SUBTASKS_BY_STATUS("getEpicSubtasksByStatus"),
+        DELETE_TASKS("deleteTasks"),
+        DELETE_EPICS("deleteEpics"),
+        DELETE_SUBTASKS("deleteSubtasks"),
+        DELETE_TASK("deleteTaskByID"),
+        DELETE_EPIC("deleteEpicByID"),
+        DELETE_SUBTASK("deleteSubtaskByID"),
+        GET_HISTORY("getHistory"),
+        GET_SESSION_HISTORY("getHistory.session"),
+        GET_PRIORITIZED("getPrioritizedTasks"),
+        GET_TASKS_BETWEEN("getTasksBetween"),
+        GET_NEXT_TASKS("getNextTasks"),
+        FIND_FREE_SLOT("findFreeSlot"),
+        ADD_TASK_AT_FREE_SLOT("addTaskAtFreeSlot"),
+        ADD_SUBTASKS_AT_FREE_SLOTS("addSubtasksAtFreeSlots"),
+        BEGIN_BATCH("beginBatch"),
+        COMMIT_BATCH("batch.commit");
+
+        final String metricName;
+
+        Operation(String name) {
+            this.metricName = "taskManager." + name;
+        }
+    }
+
+    private final TaskManager delegate;
+    private final LatencyHistogram[] latencies = new LatencyHistogram[Operation.values().length];
+
+    public InstrumentedTaskManager(TaskManager delegate, MetricsRegistry registry) {
+        if (delegate == null || registry == null) {
+            throw new IllegalArgumentException("Менеджер и реестр метрик обязательны");
+        }
+        this.delegate = delegate;
+        for (Operation operation : Operation.values()) {
+            latencies[operation.ordinal()] = registry.histogram(operation.metricName);
+        }
+        if (delegate instanceof InMemoryTaskManager) {
+            ((InMemoryTaskManager) delegate).instrument(registry);
+        }
+    }
+
+    @Override
+    public int addTask(Task task) {
+        long start = System.nanoTime();
+        int result = delegate.addTask(task);
+        record(Operation.ADD_TASK, start);
+        return result;
+    }
+
+    @Override
+    public int addEpic(Epic epic) {
+        long start = System.nanoTime();
+        int result = delegate.addEpic(epic);
+        record(Operation.ADD_EPIC, start);
+        return result;
+    }
+
+    @Override
+    public int addSubtask(Subtask subtask) {
+        long start = System.nanoTime();
+        int result = delegate.addSubtask(subtask);
+        record(Operation.ADD_SUBTASK, start);
+        return result;
+    }
+
+    @Override
+    public boolean updateTask(Task task) {
+        long start = System.nanoTime();
+        boolean result = delegate.updateTask(task);
+        record(Operation.UPDATE_TASK, start);
+        return result;
+    }
+
+    @Override
+    public boolean updateEpic(Epic epic) {
+        long start = System.nanoTime();
+        boolean result = delegate.updateEpic(epic);
+        record(Operation.UPDATE_EPIC, start);
+        return result;
+    }
+
+    @Override
+    public boolean updateSubtask(Subtask subtask) {
+        long start = System.nanoTime();
+        boolean result = delegate.updateSubtask(subtask);
+        record(Operation.UPDATE_SUBTASK, start);
+        return result;
+    }
+
+    @Override
+    public Task getTaskByID(int id) {
+        long start = System.nanoTime();
+        Task result = delegate.getTaskByID(id);
+        record(Operation.GET_TASK, start);
+        return result;
+    }
+
+    @Override
+    public Epic getEpicByID(int id) {
+        long start = System.nanoTime();
+        Epic result = delegate.getEpicByID(id);
+        record(Operation.GET_EPIC, start);
+        return result;
+    }
+
+    @Override
+    public Subtask getSubtaskByID(int id) {
+        long start = System.nanoTime();
+        Subtask result = delegate.getSubtaskByID(id);
+        record(Operation.GET_SUBTASK, start);
+        return result;
+    }
+
+    @Override
+    public Task peekTask(int id) {
+        long start = System.nanoTime();
+        Task result = delegate.peekTask(id);
+        record(Operation.PEEK_TASK, start);
+        return result;
+    }
+
+    @Override
+    public Epic peekEpic(int id) {
+        long start = System.nanoTime();
+        Epic result = delegate.peekEpic(id);
+        record(Operation.PEEK_EPIC, start);
+        return result;
+    }
+
+    @Override
+    public Subtask peekSubtask(int id) {
+        long start = System.nanoTime();
+        Subtask result = delegate.peekSubtask(id);
+        record(Operation.PEEK_SUBTASK, start);
+        return result;
+    }
+
+    @Override
+    public Task getTaskByID(int id, String sessionId) {
+        long start = System.nanoTime();
+        Task result = delegate.getTaskByID(id, sessionId);
+        record(Operation.GET_TASK_IN_SESSION, start);
+        return result;
+    }
+
+    @Override
+    public Epic getEpicByID(int id, String sessionId) {
+        long start = System.nanoTime();
+        Epic result = delegate.getEpicByID(id, sessionId);
+        record(Operation.GET_EPIC_IN_SESSION, start);
+        return result;
+    }
+
+    @Override
+    public Subtask getSubtaskByID(int id, String sessionId) {
+        long start = System.nanoTime();
+        Subtask result = delegate.getSubtaskByID(id, sessionId);
+        record(Operation.GET_SUBTASK_IN_SESSION, start);
+        return result;
+    }
+
+    @Override
+    public List<Task> getTasks() {
+        long start = System.nanoTime();
+        List<Task> result = delegate.getTasks();
+        record(Operation.GET_TASKS, start);
+        return result;
+    }
+
+    @Override
+    public List<Epic> getEpics() {
+        long start = System.nanoTime();
+        List<Epic> result = delegate.getEpics();
+        record(Operation.GET_EPICS, start);
+        return result;
+    }
+
+    @Override
+    public List<Subtask> getSubtasks() {
+        long start = System.nanoTime();
+        List<Subtask> result = delegate.getSubtasks();
+        record(Operation.GET_SUBTASKS, start);
+        return result;
+    }
+
+    @Override
+    public List<Subtask> getEpicSubtasks(int epicId) {
+        long start = System.nanoTime();
+        List<Subtask> result = delegate.getEpicSubtasks(epicId);
+        record(Operation.GET_EPIC_SUBTASKS, start);
+        return result;
+    }
+
+    @Override
+    public List<Task> getTasksByStatus(Status status, TaskType type) {
+        long start = System.nanoTime();
+        List<Task> result = delegate.getTasksByStatus(status, type);
+        record(Operation.GET_TASKS_BY_STATUS, start);
+        return result;
+    }
+
+    @Override
+    public List<Subtask> getEpicSubtasksByStatus(int epicId, Status status) {
+        long start = System.nanoTime();
+        List<Subtask> result = delegate.getEpicSubtasksByStatus(epicId, status);
+        record(Operation.GET_EPIC_SUBTASKS_BY_STATUS, start);
+        return result;
+    }
+
+    @Override
+    public void deleteTasks() {
+        long start = System.nanoTime();
+        delegate.deleteTasks();
+        record(Operation.DELETE_TASKS, start);
+    }
+
+    @Override
+    public void deleteEpics() {
+        long start = System.nanoTime();
+        delegate.deleteEpics();
+        record(Operation.DELETE_EPICS, start);
+    }
+
+    @Override
+    public void deleteSubtasks() {
+        long start = System.nanoTime();
+        delegate.deleteSubtasks();
+        record(Operation.DELETE_SUBTASKS, start);
+    }
+
+    @Override
+    public boolean deleteTaskByID(int id) {
+        long start = System.nanoTime();
+        boolean result = delegate.deleteTaskByID(id);
+        record(Operation.DELETE_TASK, start);
+        return result;
+    }
+
+    @Override
+    public boolean deleteEpicByID(int id) {
+        long start = System.nanoTime();
+        boolean result = delegate.deleteEpicByID(id);
+        record(Operation.DELETE_EPIC, start);
+        return result;
+    }
+
+    @Override
+    public boolean deleteSubtaskByID(int id) {
+        long start = System.nanoTime();
+        boolean result = delegate.deleteSubtaskByID(id);
+        record(Operation.DELETE_SUBTASK, start);
+        return result;
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        long start = System.nanoTime();
+        List<Task> result = delegate.getHistory();
+        record(Operation.GET_HISTORY, start);
+        return result;
+    }
+
+    @Override
+    public List<Task> getHistory(String sessionId) {
+        long start = System.nanoTime();
+        List<Task> result = delegate.getHistory(sessionId);
+        record(Operation.GET_SESSION_HISTORY, start);
+        return result;
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks() {
+        long start = System.nanoTime();
+        List<Task> result = delegate.getPrioritizedTasks();
+        record(Operation.GET_PRIORITIZED, start);
+        return result;
+    }
+
+    @Override
+    public List<Task> getTasksBetween(LocalDateTime from, LocalDateTime to) {
+        long start = System.nanoTime();
+        List<Task> result = delegate.getTasksBetween(from, to);
+        record(Operation.GET_TASKS_BETWEEN, start);
+        return result;
+    }
+
+    @Override
+    public List<Task> getNextTasks(LocalDateTime after, int limit) {
+        long start = System.nanoTime();
+        List<Task> result = delegate.getNextTasks(after, limit);
+        record(Operation.GET_NEXT_TASKS, start);
+        return result;
+    }
+
+    @Override
+    public LocalDateTime findFreeSlot(LocalDateTime after, Duration duration) {
+        long start = System.nanoTime();
+        LocalDateTime result = delegate.findFreeSlot(after, duration);
+        record(Operation.FIND_FREE_SLOT, start);
+        return result;
+    }
+
+    @Override
+    public int addTaskAtFreeSlot(Task task, LocalDateTime after) {
+        long start = System.nanoTime();
+        int result = delegate.addTaskAtFreeSlot(task, after);
+        record(Operation.ADD_TASK_AT_FREE_SLOT, start);
+        return result;
+    }
+
+    @Override
+    public List<Integer> addSubtasksAtFreeSlots(List<Subtask> subtasks, LocalDateTime after) {
+        long start = System.nanoTime();
+        List<Integer> result = delegate.addSubtasksAtFreeSlots(subtasks, after);
+        record(Operation.ADD_SUBTASKS_AT_FREE_SLOTS, start);
+        return result;
+    }
+
+    @Override
+    public TaskBatch beginBatch() {
+        long start = System.nanoTime();
+        TaskBatch batch = delegate.beginBatch();
+        batch.recordCommitsTo(latencies[Operation.COMMIT_BATCH.ordinal()]);
+        record(Operation.BEGIN_BATCH, start);
+        return batch;
+    }
+
+    private void record(Operation operation, long start) {
+        latencies[operation.ordinal()].record(System.nanoTime() - start);
+    }
+}
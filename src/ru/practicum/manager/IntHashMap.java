@@ -0,0 +1,204 @@
+package ru.practicum.manager;
+
+import java.util.*;
+
+/*
+ * Открытая адресация с линейным пробированием: ключи лежат в int[], значения - в параллельном
+ * Object[], пустая ячейка - это null в значениях. ID выдаются подряд, поэтому хватает
+ * тождественного хеша с перемешиванием старших битов, как в HashMap. Удаление сдвигает
+ * хвост цепочки назад, так что надгробия не копятся.
+ */
+class IntHashMap<V> implements IntMap<V> {
+
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.75f;
+
+    private int[] keys;
+    private Object[] values;
+    private int size;
+    private int threshold;
+
+    IntHashMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    IntHashMap(int expectedSize) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("Ожидаемый размер не может быть отрицательным");
+        }
+        allocate(tableSizeFor((int) Math.ceil(Math.max(expectedSize, 1) / LOAD_FACTOR)));
+    }
+
+    @Override
+    public V get(int key) {
+        int index = indexOf(key);
+        return index < 0 ? null : valueAt(index);
+    }
+
+    @Override
+    public boolean containsKey(int key) {
+        return indexOf(key) >= 0;
+    }
+
+    @Override
+    public V put(int key, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Значение не может быть null");
+        }
+        int mask = keys.length - 1;
+        int index = hash(key) & mask;
+        while (values[index] != null) {
+            if (keys[index] == key) {
+                V old = valueAt(index);
+                values[index] = value;
+                return old;
+            }
+            index = (index + 1) & mask;
+        }
+        keys[index] = key;
+        values[index] = value;
+        if (++size > threshold) {
+            resize();
+        }
+        return null;
+    }
+
+    @Override
+    public V remove(int key) {
+        int index = indexOf(key);
+        if (index < 0) {
+            return null;
+        }
+        V old = valueAt(index);
+        shiftBack(index);
+        size--;
+        return old;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    @Override
+    public Collection<V> values() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<V> iterator() {
+                return new ValueIterator();
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    private int indexOf(int key) {
+        int mask = keys.length - 1;
+        int index = hash(key) & mask;
+        while (values[index] != null) {
+            if (keys[index] == key) {
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+        return -1;
+    }
+
+    // Подтягиваем назад элементы, которые без освободившейся ячейки стали бы недостижимы
+    private void shiftBack(int hole) {
+        int mask = keys.length - 1;
+        int index = hole;
+        while (true) {
+            index = (index + 1) & mask;
+            if (values[index] == null) {
+                break;
+            }
+            int home = hash(keys[index]) & mask;
+            boolean reachable = hole <= index ? hole < home && home <= index : hole < home || home <= index;
+            if (!reachable) {
+                keys[hole] = keys[index];
+                values[hole] = values[index];
+                hole = index;
+            }
+        }
+        values[hole] = null;
+    }
+
+    private void resize() {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(oldKeys.length * 2);
+        int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != null) {
+                int index = hash(oldKeys[i]) & mask;
+                while (values[index] != null) {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = oldKeys[i];
+                values[index] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new Object[capacity];
+        threshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    @SuppressWarnings("unchecked")
+    private V valueAt(int index) {
+        return (V) values[index];
+    }
+
+    private static int hash(int key) {
+        return key ^ (key >>> 16);
+    }
+
+    private static int tableSizeFor(int capacity) {
+        int size = Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1;
+        return Math.max(size, 2);
+    }
+
+    private class ValueIterator implements Iterator<V> {
+        private int index = nextOccupied(0);
+
+        @Override
+        public boolean hasNext() {
+            return index < values.length;
+        }
+
+        @Override
+        public V next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            V value = valueAt(index);
+            index = nextOccupied(index + 1);
+            return value;
+        }
+
+        private int nextOccupied(int from) {
+            int i = from;
+            while (i < values.length && values[i] == null) {
+                i++;
+            }
+            return i;
+        }
+    }
+}
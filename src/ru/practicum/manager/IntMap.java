@@ -0,0 +1,23 @@
+package ru.practicum.manager;
+
+import java.util.Collection;
+
+// Хранилище по int-ключу без упаковки ID в Integer
+interface IntMap<V> {
+
+    V get(int key);
+
+    boolean containsKey(int key);
+
+    V put(int key, V value);
+
+    V remove(int key);
+
+    int size();
+
+    boolean isEmpty();
+
+    void clear();
+
+    Collection<V> values();
+}
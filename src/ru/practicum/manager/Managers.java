@@ -1,5 +1,7 @@
 package ru.practicum.manager;
 
+import ru.practicum.metrics.MetricsRegistry;
+
 import java.io.File;
 
 public class Managers {
@@ -12,11 +14,60 @@ public class Managers {
         return new InMemoryTaskManager();
     }
 
+    public static TaskManager getConcurrent() {
+        return new ConcurrentTaskManager();
+    }
+
+    public static TaskManager getCompact() {
+        return InMemoryTaskManager.withCompactStorage();
+    }
+
+    public static TaskManager getInstrumented(TaskManager manager, MetricsRegistry registry) {
+        return new InstrumentedTaskManager(manager, registry);
+    }
+
     public static HistoryManager getDefaultHistory() {
         return new InMemoryHistoryManager();
     }
 
+    public static HistoryManager getDefaultHistory(int capacity) {
+        return new InMemoryHistoryManager(capacity);
+    }
+
+    public static HistoryManager getDefaultHistory(int capacity, HistoryEvictionPolicy policy) {
+        return new InMemoryHistoryManager(capacity, policy);
+    }
+
+    // Потокобезопасная история для менеджеров, к которым обращаются из нескольких потоков
+    public static HistoryManager getConcurrentHistory(int capacity) {
+        return getConcurrentHistory(capacity, HistoryEvictionPolicy.LEAST_RECENTLY_VIEWED);
+    }
+
+    public static HistoryManager getConcurrentHistory(int capacity, HistoryEvictionPolicy policy) {
+        return new ConcurrentHistoryManager(capacity, policy);
+    }
+
     public static FileBackedTaskManager getFileBackedManager(File file) {
         return new FileBackedTaskManager(file);
     }
+
+    public static FileBackedTaskManager getFileBackedManager(File file, SnapshotFormat format) {
+        return new FileBackedTaskManager(file, format);
+    }
+
+    public static FileBackedTaskManager getAsyncFileBackedManager(File file, long delayMillis, int maxDirtyOps) {
+        return FileBackedTaskManager.withAsyncSave(file, FileBackedTaskManager.detectFormat(file), delayMillis, maxDirtyOps);
+    }
+
+    public static MappedTaskManager getMappedFileBackedManager(File file) {
+        return new MappedTaskManager(file);
+    }
+
+    public static SegmentedFileBackedTaskManager getSegmentedFileBackedManager(File directory) {
+        return new SegmentedFileBackedTaskManager(directory);
+    }
+
+    public static FileBackedTaskManager getJournaledFileBackedManager(File file) {
+        return FileBackedTaskManager.withJournal(file);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,210 @@
+package ru.practicum.manager;
+
+import ru.practicum.model.Task;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/*
+ * Снимок (бинарный или CSV), отображённый в память. map() читает только заголовок, а
+ * verifyAndIndex() за один проход проверяет контрольную сумму и собирает индекс из пар
+ * (ID << 32 | смещение), отсортированных по ID. Сама задача декодируется по смещению при
+ * обращении, объекты заранее не создаются. До индексации поиск недоступен, поэтому записи
+ * из повреждённого файла наружу не попадают.
+ */
+final class MappedSnapshot {
+
+    private final MappedByteBuffer buffer;
+    private final boolean binary;
+    private long[] index;
+
+    private MappedSnapshot(MappedByteBuffer buffer, boolean binary) {
+        this.buffer = buffer;
+        this.binary = binary;
+    }
+
+    static MappedSnapshot open(File file) {
+        MappedSnapshot snapshot = map(file);
+        snapshot.verifyAndIndex(file);
+        return snapshot;
+    }
+
+    static MappedSnapshot map(File file) {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            boolean binary = isBinary(buffer);
+            if (binary) {
+                checkVersion(buffer);
+            }
+            return new MappedSnapshot(buffer, binary);
+        } catch (IOException | RuntimeException e) {
+            throw new ManagerSaveException("Не удалось отобразить снимок в память: " + file, e);
+        }
+    }
+
+    // Проход по всему файлу: вызывается из фонового потока, а не при открытии
+    void verifyAndIndex(File file) {
+        try {
+            AtomicSnapshotFile.verify(buffer, file);
+            long[] result = binary ? indexBinary(buffer) : indexCsv(buffer);
+            Arrays.sort(result);
+            index = result;
+        } catch (RuntimeException e) {
+            throw new ManagerSaveException("Не удалось проверить снимок: " + file, e);
+        }
+    }
+
+    Task find(int id) {
+        int low = 0;
+        int high = index.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midId = (int) (index[mid] >>> 32);
+            if (midId < id) {
+                low = mid + 1;
+            } else if (midId > id) {
+                high = mid - 1;
+            } else {
+                return decode((int) index[mid]);
+            }
+        }
+        return null;
+    }
+
+    int size() {
+        return index.length;
+    }
+
+    private Task decode(int offset) {
+        ByteBuffer view = buffer.duplicate();
+        view.position(offset);
+        if (!binary) {
+            return Task.fromString(readLine(view).trim());
+        }
+        int kind = view.get();
+        int length = (int) BinarySnapshotCodec.readVarLong(view);
+        ByteBuffer payload = view.slice();
+        payload.limit(length);
+        return BinarySnapshotCodec.decodeTask(kind, payload);
+    }
+
+    private static boolean isBinary(ByteBuffer buffer) {
+        if (buffer.limit() < BinarySnapshotCodec.MAGIC.length) {
+            return false;
+        }
+        for (int i = 0; i < BinarySnapshotCodec.MAGIC.length; i++) {
+            if (buffer.get(i) != BinarySnapshotCodec.MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void checkVersion(ByteBuffer buffer) {
+        if (buffer.limit() <= BinarySnapshotCodec.MAGIC.length) {
+            throw new IllegalStateException("Бинарный снимок обрезан");
+        }
+        int version = buffer.get(BinarySnapshotCodec.MAGIC.length);
+        if (version != BinarySnapshotCodec.VERSION) {
+            throw new IllegalStateException("Неподдерживаемая версия бинарного снимка: " + version);
+        }
+    }
+
+    private static long[] indexBinary(ByteBuffer buffer) {
+        ByteBuffer view = buffer.duplicate();
+        view.position(BinarySnapshotCodec.MAGIC.length + 1);
+
+        LongArray index = new LongArray();
+        while (view.hasRemaining()) {
+            int offset = view.position();
+            int kind = view.get();
+            if (kind == BinarySnapshotCodec.END) {
+                break;
+            }
+            int length = (int) BinarySnapshotCodec.readVarLong(view);
+            int payloadStart = view.position();
+            if (kind != BinarySnapshotCodec.HISTORY) {
+                long id = BinarySnapshotCodec.readVarLong(view);
+                index.add(id << 32 | offset);
+            }
+            view.position(payloadStart + length);
+        }
+        return index.toArray();
+    }
+
+    // Строки до секции истории; ID - число в начале строки
+    private static long[] indexCsv(ByteBuffer buffer) {
+        LongArray index = new LongArray();
+        int limit = buffer.limit();
+        int lineStart = 0;
+        while (lineStart < limit) {
+            int position = lineStart;
+            while (position < limit && buffer.get(position) == ' ') {
+                position++;
+            }
+            if (startsWith(buffer, position, "HISTORY:")) {
+                break;
+            }
+            long id = 0;
+            int digits = 0;
+            while (position < limit && Character.isDigit(buffer.get(position))) {
+                id = id * 10 + (buffer.get(position) - '0');
+                position++;
+                digits++;
+            }
+            if (digits > 0 && digits <= 10 && position < limit && buffer.get(position) == ',') {
+                index.add(id << 32 | lineStart);
+            }
+            while (position < limit && buffer.get(position) != '\n') {
+                position++;
+            }
+            lineStart = position + 1;
+        }
+        return index.toArray();
+    }
+
+    private static boolean startsWith(ByteBuffer buffer, int position, String prefix) {
+        if (position + prefix.length() > buffer.limit()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (buffer.get(position + i) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String readLine(ByteBuffer view) {
+        int start = view.position();
+        int end = start;
+        while (end < view.limit() && view.get(end) != '\n') {
+            end++;
+        }
+        byte[] bytes = new byte[end - start];
+        view.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static class LongArray {
+        private long[] values = new long[1024];
+        private int size;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
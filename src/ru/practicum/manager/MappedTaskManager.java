@@ -0,0 +1,347 @@
+package ru.practicum.manager;
+
+import ru.practicum.model.Epic;
+import ru.practicum.model.Status;
+import ru.practicum.model.Subtask;
+import ru.practicum.model.Task;
+import ru.practicum.model.TaskType;
+
+import java.io.File;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+/*
+ * Быстрый старт на большом файле: конструктор только отображает снимок в память и читает
+ * заголовок, а проверка контрольной суммы, индексация по ID и загрузка полноценного
+ * FileBackedTaskManager идут в фоновом потоке, причём сумма проверяется один раз. Как только
+ * индекс готов, задачи и подзадачи по ID декодируются прямо из снимка, а просмотры
+ * откладываются и попадают в историю сразу после загрузки, после чего отображение
+ * освобождается. Читатели, пришедшие раньше, ждут проверки снимка, а не всей загрузки.
+ * Всё остальное, включая эпики, чьи время и статус считаются по подзадачам, ждёт окончания загрузки.
+ */
+public class MappedTaskManager implements TaskManager, AutoCloseable {
+
+    private final CompletableFuture<FileBackedTaskManager> hydration = new CompletableFuture<>();
+    // Завершается, когда снимок проверен и проиндексирован или признан непригодным
+    private final CompletableFuture<Void> verification = new CompletableFuture<>();
+    // Заполняется только проверенным снимком и обнуляется после загрузки, чтобы отображение
+    // файла не жило вместе с менеджером
+    private volatile MappedSnapshot snapshot;
+    private final Queue<Consumer<TaskManager>> pendingViews = new ConcurrentLinkedQueue<>();
+
+    public MappedTaskManager(File file) {
+        this(file, FileBackedTaskManager.detectFormat(file));
+    }
+
+    public MappedTaskManager(File file, SnapshotFormat format) {
+        MappedSnapshot mapped = mapSnapshot(file);
+        Thread loader = new Thread(() -> {
+            boolean verified = false;
+            try {
+                if (mapped != null) {
+                    mapped.verifyAndIndex(file);
+                    snapshot = mapped;
+                    verified = true;
+                }
+            } catch (ManagerSaveException e) {
+                // Быстрого пути не будет, а ошибку сообщит полная загрузка с проверкой суммы
+            } finally {
+                verification.complete(null);
+            }
+            try {
+                FileBackedTaskManager manager = FileBackedTaskManager.withParallelLoad(file, format,
+                        Runtime.getRuntime().availableProcessors(), !verified);
+                hydration.complete(manager);
+                snapshot = null;
+                applyPendingViews(manager);
+            } catch (RuntimeException e) {
+                snapshot = null;
+                hydration.completeExceptionally(e);
+            }
+        }, "kanban-snapshot-hydration");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    // Незакомпактированный журнал мог изменить задачи после снимка, тогда снимку верить нельзя
+    private static MappedSnapshot mapSnapshot(File file) {
+        File journal = new File(file.getPath() + ".journal");
+        if (!file.isFile() || file.length() == 0 || journal.length() > 0) {
+            return null;
+        }
+        try {
+            return MappedSnapshot.map(file);
+        } catch (ManagerSaveException e) {
+            return null;
+        }
+    }
+
+    // Проверенный снимок для быстрого пути или null, если отвечать должен загруженный менеджер
+    private MappedSnapshot verifiedSnapshot() {
+        if (isHydrated()) {
+            return null;
+        }
+        verification.join();
+        return isHydrated() ? null : snapshot;
+    }
+
+    public boolean isHydrated() {
+        return hydration.isDone();
+    }
+
+    public FileBackedTaskManager awaitHydration() {
+        FileBackedTaskManager manager;
+        try {
+            manager = hydration.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+        applyPendingViews(manager);
+        return manager;
+    }
+
+    // Разбор очереди сериализован, чтобы история получала просмотры по порядку из одного потока
+    private void applyPendingViews(FileBackedTaskManager manager) {
+        synchronized (pendingViews) {
+            Consumer<TaskManager> view;
+            while ((view = pendingViews.poll()) != null) {
+                view.accept(manager);
+            }
+        }
+    }
+
+    // Загрузка могла закончиться между проверкой и постановкой в очередь: тогда разбираем сами
+    private void deferView(Consumer<TaskManager> view) {
+        pendingViews.add(view);
+        if (isHydrated()) {
+            awaitHydration();
+        }
+    }
+
+    @Override
+    public Task peekTask(int id) {
+        MappedSnapshot current = verifiedSnapshot();
+        if (current == null) {
+            return awaitHydration().peekTask(id);
+        }
+        return plainTask(current.find(id));
+    }
+
+    @Override
+    public Subtask peekSubtask(int id) {
+        MappedSnapshot current = verifiedSnapshot();
+        if (current == null) {
+            return awaitHydration().peekSubtask(id);
+        }
+        Task task = current.find(id);
+        return task instanceof Subtask ? (Subtask) task : null;
+    }
+
+    @Override
+    public Task getTaskByID(int id) {
+        Task task = peekTask(id);
+        if (task != null && !isHydrated()) {
+            deferView(manager -> manager.getTaskByID(id));
+            return task;
+        }
+        return awaitHydration().getTaskByID(id);
+    }
+
+    @Override
+    public Subtask getSubtaskByID(int id) {
+        Subtask subtask = peekSubtask(id);
+        if (subtask != null && !isHydrated()) {
+            deferView(manager -> manager.getSubtaskByID(id));
+            return subtask;
+        }
+        return awaitHydration().getSubtaskByID(id);
+    }
+
+    @Override
+    public Task getTaskByID(int id, String sessionId) {
+        Task task = peekTask(id);
+        if (task != null && !isHydrated()) {
+            deferView(manager -> manager.getTaskByID(id, sessionId));
+            return task;
+        }
+        return awaitHydration().getTaskByID(id, sessionId);
+    }
+
+    @Override
+    public Subtask getSubtaskByID(int id, String sessionId) {
+        Subtask subtask = peekSubtask(id);
+        if (subtask != null && !isHydrated()) {
+            deferView(manager -> manager.getSubtaskByID(id, sessionId));
+            return subtask;
+        }
+        return awaitHydration().getSubtaskByID(id, sessionId);
+    }
+
+    private static Task plainTask(Task task) {
+        return task != null && task.getType() == TaskType.TASK ? task : null;
+    }
+
+    @Override
+    public int addTask(Task task) {
+        return awaitHydration().addTask(task);
+    }
+
+    @Override
+    public int addEpic(Epic epic) {
+        return awaitHydration().addEpic(epic);
+    }
+
+    @Override
+    public int addSubtask(Subtask subtask) {
+        return awaitHydration().addSubtask(subtask);
+    }
+
+    @Override
+    public boolean updateTask(Task task) {
+        return awaitHydration().updateTask(task);
+    }
+
+    @Override
+    public boolean updateEpic(Epic epic) {
+        return awaitHydration().updateEpic(epic);
+    }
+
+    @Override
+    public boolean updateSubtask(Subtask subtask) {
+        return awaitHydration().updateSubtask(subtask);
+    }
+
+    @Override
+    public Epic getEpicByID(int id) {
+        return awaitHydration().getEpicByID(id);
+    }
+
+    @Override
+    public Epic peekEpic(int id) {
+        return awaitHydration().peekEpic(id);
+    }
+
+    @Override
+    public Epic getEpicByID(int id, String sessionId) {
+        return awaitHydration().getEpicByID(id, sessionId);
+    }
+
+    @Override
+    public List<Task> getTasks() {
+        return awaitHydration().getTasks();
+    }
+
+    @Override
+    public List<Epic> getEpics() {
+        return awaitHydration().getEpics();
+    }
+
+    @Override
+    public List<Subtask> getSubtasks() {
+        return awaitHydration().getSubtasks();
+    }
+
+    @Override
+    public List<Subtask> getEpicSubtasks(int epicId) {
+        return awaitHydration().getEpicSubtasks(epicId);
+    }
+
+    @Override
+    public List<Task> getTasksByStatus(Status status, TaskType type) {
+        return awaitHydration().getTasksByStatus(status, type);
+    }
+
+    @Override
+    public List<Subtask> getEpicSubtasksByStatus(int epicId, Status status) {
+        return awaitHydration().getEpicSubtasksByStatus(epicId, status);
+    }
+
+    @Override
+    public void deleteTasks() {
+        awaitHydration().deleteTasks();
+    }
+
+    @Override
+    public void deleteEpics() {
+        awaitHydration().deleteEpics();
+    }
+
+    @Override
+    public void deleteSubtasks() {
+        awaitHydration().deleteSubtasks();
+    }
+
+    @Override
+    public boolean deleteTaskByID(int id) {
+        return awaitHydration().deleteTaskByID(id);
+    }
+
+    @Override
+    public boolean deleteEpicByID(int id) {
+        return awaitHydration().deleteEpicByID(id);
+    }
+
+    @Override
+    public boolean deleteSubtaskByID(int id) {
+        return awaitHydration().deleteSubtaskByID(id);
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        return awaitHydration().getHistory();
+    }
+
+    @Override
+    public List<Task> getHistory(String sessionId) {
+        return awaitHydration().getHistory(sessionId);
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks() {
+        return awaitHydration().getPrioritizedTasks();
+    }
+
+    @Override
+    public List<Task> getTasksBetween(LocalDateTime from, LocalDateTime to) {
+        return awaitHydration().getTasksBetween(from, to);
+    }
+
+    @Override
+    public List<Task> getNextTasks(LocalDateTime after, int limit) {
+        return awaitHydration().getNextTasks(after, limit);
+    }
+
+    @Override
+    public LocalDateTime findFreeSlot(LocalDateTime after, Duration duration) {
+        return awaitHydration().findFreeSlot(after, duration);
+    }
+
+    @Override
+    public int addTaskAtFreeSlot(Task task, LocalDateTime after) {
+        return awaitHydration().addTaskAtFreeSlot(task, after);
+    }
+
+    @Override
+    public List<Integer> addSubtasksAtFreeSlots(List<Subtask> subtasks, LocalDateTime after) {
+        return awaitHydration().addSubtasksAtFreeSlots(subtasks, after);
+    }
+
+    @Override
+    public TaskBatch beginBatch() {
+        return awaitHydration().beginBatch();
+    }
+
+    @Override
+    public void close() {
+        awaitHydration().close();
+    }
+}
@@ -0,0 +1,178 @@
+package ru.practicum.manager;
+
+import ru.practicum.model.Task;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/*
+ * Параллельный разбор CSV-снимка: файл отображается в память, секция задач делится пополам
+ * по границам строк, пока куски не станут достаточно мелкими, и куски разбираются в ForkJoinPool.
+ * Результаты склеиваются в исходном порядке строк. Связывание подзадач с эпиками и nextID
+ * остаются за менеджером, секция истории читается последовательно.
+ */
+final class ParallelCsvLoader {
+
+    private static final int MIN_CHUNK = 64 * 1024;
+    private static final byte[] HISTORY_MARKER = "HISTORY:".getBytes(StandardCharsets.US_ASCII);
+
+    static final class Result {
+        final List<Task> tasks;
+        final List<Integer> history;
+
+        Result(List<Task> tasks, List<Integer> history) {
+            this.tasks = tasks;
+            this.history = history;
+        }
+    }
+
+    private ParallelCsvLoader() {
+
+    }
+
+    static Result load(File file, int parallelism) throws IOException {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Число потоков загрузки должно быть положительным");
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            int historyStart = findHistory(buffer);
+            int taskEnd = historyStart < 0 ? buffer.limit() : historyStart;
+            int chunk = Math.max(MIN_CHUNK, taskEnd / (parallelism * 4));
+
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                List<Task> tasks = pool.invoke(new ParseChunk(buffer, 0, taskEnd, chunk));
+                List<Integer> history = historyStart < 0 ? new ArrayList<>()
+                        : parseHistory(buffer, historyStart + HISTORY_MARKER.length);
+                return new Result(tasks, history);
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    private static class ParseChunk extends RecursiveTask<List<Task>> {
+        private static final long serialVersionUID = 1L;
+
+        private final ByteBuffer buffer;
+        private final int start;
+        private final int end;
+        private final int chunk;
+
+        ParseChunk(ByteBuffer buffer, int start, int end, int chunk) {
+            this.buffer = buffer;
+            this.start = start;
+            this.end = end;
+            this.chunk = chunk;
+        }
+
+        @Override
+        protected List<Task> compute() {
+            if (end - start <= chunk) {
+                return parseLines(buffer, start, end);
+            }
+            int middle = nextLineStart(buffer, start + (end - start) / 2, end);
+            if (middle >= end) {
+                return parseLines(buffer, start, end);
+            }
+            ParseChunk left = new ParseChunk(buffer, start, middle, chunk);
+            ParseChunk right = new ParseChunk(buffer, middle, end, chunk);
+            right.fork();
+            List<Task> result = left.compute();
+            result.addAll(right.join());
+            return result;
+        }
+    }
+
+    private static List<Task> parseLines(ByteBuffer buffer, int start, int end) {
+        List<Task> tasks = new ArrayList<>();
+        for (String line : readLines(buffer, start, end)) {
+            if (line.isEmpty() || line.startsWith("#") || line.startsWith("id,")) {
+                continue;
+            }
+            Task task = Task.fromString(line);
+            if (task != null) {
+                tasks.add(task);
+            }
+        }
+        return tasks;
+    }
+
+    private static List<Integer> parseHistory(ByteBuffer buffer, int start) {
+        List<Integer> ids = new ArrayList<>();
+        for (String line : readLines(buffer, start, buffer.limit())) {
+            try {
+                ids.add(Integer.parseInt(line));
+            } catch (NumberFormatException ignored) {
+            }
+        }
+        return ids;
+    }
+
+    private static List<String> readLines(ByteBuffer buffer, int start, int end) {
+        byte[] bytes = new byte[end - start];
+        buffer.duplicate().position(start).get(bytes);
+        List<String> lines = new ArrayList<>();
+        int lineStart = 0;
+        for (int i = 0; i <= bytes.length; i++) {
+            if (i == bytes.length || bytes[i] == '\n') {
+                lines.add(new String(bytes, lineStart, i - lineStart, StandardCharsets.UTF_8).trim());
+                lineStart = i + 1;
+            }
+        }
+        return lines;
+    }
+
+    private static int nextLineStart(ByteBuffer buffer, int position, int end) {
+        while (position < end && buffer.get(position) != '\n') {
+            position++;
+        }
+        return Math.min(position + 1, end);
+    }
+
+    // Секция истории идёт в конце файла, поэтому ищем её с конца до первой строки с задачей
+    private static int findHistory(ByteBuffer buffer) {
+        int lineEnd = buffer.limit();
+        while (lineEnd > 0) {
+            int lineStart = lineEnd - 1;
+            while (lineStart > 0 && buffer.get(lineStart - 1) != '\n') {
+                lineStart--;
+            }
+            int position = lineStart;
+            while (position < lineEnd && buffer.get(position) == ' ') {
+                position++;
+            }
+            if (matches(buffer, position)) {
+                return position;
+            }
+            for (int i = position; i < lineEnd; i++) {
+                if (buffer.get(i) == ',') {
+                    return -1;
+                }
+            }
+            lineEnd = lineStart;
+        }
+        return -1;
+    }
+
+    private static boolean matches(ByteBuffer buffer, int position) {
+        if (position + HISTORY_MARKER.length > buffer.limit()) {
+            return false;
+        }
+        for (int i = 0; i < HISTORY_MARKER.length; i++) {
+            if (buffer.get(position + i) != HISTORY_MARKER[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,89 @@
+package ru.practicum.manager;
+
+import ru.practicum.model.Task;
+
+import java.util.*;
+import java.util.function.IntPredicate;
+
+/*
+ * Отдельная история просмотров на каждую сессию. Общее число записей ограничено бюджетом:
+ * при его превышении целиком вытесняются сессии, к которым дольше всего не обращались.
+ */
+public class PartitionedHistoryService {
+
+    private final int partitionCapacity;
+    private final int maxTotalEntries;
+    private final LinkedHashMap<String, InMemoryHistoryManager> partitions =
+            new LinkedHashMap<>(16, 0.75f, true);
+    private int totalEntries;
+
+    public PartitionedHistoryService(int partitionCapacity, int maxTotalEntries) {
+        if (partitionCapacity <= 0 || maxTotalEntries < partitionCapacity) {
+            throw new IllegalArgumentException("Бюджет истории должен вмещать хотя бы одну сессию");
+        }
+        this.partitionCapacity = partitionCapacity;
+        this.maxTotalEntries = maxTotalEntries;
+    }
+
+    public synchronized void add(String sessionId, Task task) {
+        if (sessionId == null || task == null) {
+            return;
+        }
+        InMemoryHistoryManager partition = partitions.computeIfAbsent(sessionId,
+                id -> new InMemoryHistoryManager(partitionCapacity));
+        int before = partition.size();
+        partition.add(task);
+        totalEntries += partition.size() - before;
+        evictIdlePartitions(sessionId);
+    }
+
+    // Удалённые задачи вычищаются лениво, при чтении истории сессии
+    public synchronized List<Task> getHistory(String sessionId, IntPredicate exists) {
+        InMemoryHistoryManager partition = partitions.get(sessionId);
+        if (partition == null) {
+            return List.of();
+        }
+        List<Task> history = partition.getHistory();
+        boolean pruned = false;
+        for (Task task : history) {
+            if (!exists.test(task.getId())) {
+                partition.remove(task.getId());
+                totalEntries--;
+                pruned = true;
+            }
+        }
+        return pruned ? partition.getHistory() : history;
+    }
+
+    public synchronized void removeSession(String sessionId) {
+        InMemoryHistoryManager partition = partitions.remove(sessionId);
+        if (partition != null) {
+            totalEntries -= partition.size();
+        }
+    }
+
+    public synchronized void clear() {
+        partitions.clear();
+        totalEntries = 0;
+    }
+
+    public synchronized int getSessionCount() {
+        return partitions.size();
+    }
+
+    public synchronized int getTotalEntries() {
+        return totalEntries;
+    }
+
+    private void evictIdlePartitions(String activeSessionId) {
+        Iterator<Map.Entry<String, InMemoryHistoryManager>> iterator = partitions.entrySet().iterator();
+        while (totalEntries > maxTotalEntries && iterator.hasNext()) {
+            Map.Entry<String, InMemoryHistoryManager> eldest = iterator.next();
+            if (eldest.getKey().equals(activeSessionId)) {
+                continue;
+            }
+            totalEntries -= eldest.getValue().size();
+            iterator.remove();
+        }
+    }
+}
@@ -0,0 +1,502 @@
+package ru.practicum.manager;
+
+import ru.practicum.model.*;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.regex.Pattern;
+
+/*
+ * Данные хранятся в каталоге сегментами: отдельный CSV-файл на тип задачи и диапазон ID плюс
+ * файл истории. Изменения помечают затронутые сегменты, а save() переписывает только их,
+ * параллельно. Каждая запись сегмента идёт в новый файл с номером поколения, после чего
+ * атомарно заменяется манифест со списком актуальных файлов, и только потом удаляются старые.
+ * Если запись прервалась, старый манифест продолжает ссылаться на целые файлы прежнего поколения.
+ */
+public class SegmentedFileBackedTaskManager extends InMemoryTaskManager {
+
+    static final String MANIFEST = "manifest";
+    private static final int DEFAULT_SEGMENT_SIZE = 4096;
+    private static final String HEADER = "# kanban segments v1";
+    private static final Pattern SEGMENT_FILE = Pattern.compile("(task|epic|subtask)-\\d+\\.\\d+\\.csv|history\\.\\d+\\.csv");
+
+    private static final class Segment {
+        final TaskType type;
+        final int range;
+
+        Segment(TaskType type, int range) {
+            this.type = type;
+            this.range = range;
+        }
+
+        String fileName(long generation) {
+            return type.name().toLowerCase() + "-" + range + "." + generation + ".csv";
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Segment)) {
+                return false;
+            }
+            Segment segment = (Segment) o;
+            return range == segment.range && type == segment.type;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(type, range);
+        }
+    }
+
+    private final File directory;
+    private final int segmentSize;
+    private final Map<Segment, String> segmentFiles = new HashMap<>();
+    private final Set<Segment> dirty = new HashSet<>();
+    private String historyFile;
+    private List<Integer> persistedHistory = new ArrayList<>();
+    private long generation;
+
+    public SegmentedFileBackedTaskManager(File directory) {
+        this(directory, DEFAULT_SEGMENT_SIZE);
+    }
+
+    public SegmentedFileBackedTaskManager(File directory, int segmentSize) {
+        if (segmentSize <= 0) {
+            throw new IllegalArgumentException("Размер сегмента должен быть положительным");
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new ManagerSaveException("Не удалось создать каталог: " + directory);
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        load();
+    }
+
+    public int getDirtySegmentCount() {
+        return dirty.size();
+    }
+
+    @Override
+    public synchronized int addTask(Task task) {
+        int id = super.addTask(task);
+        if (id != -1) {
+            markAndSave(TaskType.TASK, id);
+        }
+        return id;
+    }
+
+    @Override
+    public synchronized int addEpic(Epic epic) {
+        int id = super.addEpic(epic);
+        if (id != -1) {
+            markAndSave(TaskType.EPIC, id);
+        }
+        return id;
+    }
+
+    @Override
+    public synchronized int addSubtask(Subtask subtask) {
+        int id = super.addSubtask(subtask);
+        if (id != -1) {
+            markSubtask(id, subtask.getEpicID());
+            save();
+        }
+        return id;
+    }
+
+    @Override
+    public synchronized boolean updateTask(Task task) {
+        boolean updated = super.updateTask(task);
+        if (updated) {
+            markAndSave(TaskType.TASK, task.getId());
+        }
+        return updated;
+    }
+
+    @Override
+    public synchronized boolean updateEpic(Epic epic) {
+        boolean updated = super.updateEpic(epic);
+        if (updated) {
+            markAndSave(TaskType.EPIC, epic.getId());
+        }
+        return updated;
+    }
+
+    @Override
+    public synchronized boolean updateSubtask(Subtask subtask) {
+        boolean updated = super.updateSubtask(subtask);
+        if (updated) {
+            markSubtask(subtask.getId(), subtask.getEpicID());
+            save();
+        }
+        return updated;
+    }
+
+    @Override
+    public synchronized Task getTaskByID(int id) {
+        return super.getTaskByID(id);
+    }
+
+    @Override
+    public synchronized Epic getEpicByID(int id) {
+        return super.getEpicByID(id);
+    }
+
+    @Override
+    public synchronized Subtask getSubtaskByID(int id) {
+        return super.getSubtaskByID(id);
+    }
+
+    @Override
+    public synchronized void deleteTasks() {
+        markAll(TaskType.TASK);
+        super.deleteTasks();
+        save();
+    }
+
+    @Override
+    public synchronized void deleteEpics() {
+        markAll(TaskType.EPIC);
+        markAll(TaskType.SUBTASK);
+        super.deleteEpics();
+        save();
+    }
+
+    // Статусы всех эпиков сбрасываются, поэтому переписываются и их сегменты
+    @Override
+    public synchronized void deleteSubtasks() {
+        markAll(TaskType.SUBTASK);
+        markAll(TaskType.EPIC);
+        super.deleteSubtasks();
+        save();
+    }
+
+    @Override
+    public synchronized boolean deleteTaskByID(int id) {
+        boolean deleted = super.deleteTaskByID(id);
+        if (deleted) {
+            markAndSave(TaskType.TASK, id);
+        }
+        return deleted;
+    }
+
+    @Override
+    public synchronized boolean deleteEpicByID(int id) {
+        Epic epic = peekEpic(id);
+        if (epic == null) {
+            return false;
+        }
+        for (Subtask subtask : epic.getSubtaskList()) {
+            mark(TaskType.SUBTASK, subtask.getId());
+        }
+        super.deleteEpicByID(id);
+        markAndSave(TaskType.EPIC, id);
+        return true;
+    }
+
+    @Override
+    public synchronized boolean deleteSubtaskByID(int id) {
+        Subtask subtask = peekSubtask(id);
+        if (subtask == null || !super.deleteSubtaskByID(id)) {
+            return false;
+        }
+        markSubtask(id, subtask.getEpicID());
+        save();
+        return true;
+    }
+
+    // Пакет резервирует ID вне монитора менеджера, поэтому выдача тоже под ним
+    @Override
+    protected synchronized int getNextID() {
+        return super.getNextID();
+    }
+
+    @Override
+    protected synchronized boolean commitBatch(List<Task> staged, List<Integer> ids) {
+        boolean committed = super.commitBatch(staged, ids);
+        if (committed && !staged.isEmpty()) {
+            for (Task task : staged) {
+                if (task instanceof Subtask) {
+                    markSubtask(task.getId(), ((Subtask) task).getEpicID());
+                } else {
+                    mark(task.getType(), task.getId());
+                }
+            }
+            save();
+        }
+        return committed;
+    }
+
+    @Override
+    public synchronized int addTaskAtFreeSlot(Task task, LocalDateTime after) {
+        return super.addTaskAtFreeSlot(task, after);
+    }
+
+    @Override
+    public synchronized List<Integer> addSubtasksAtFreeSlots(List<Subtask> subtasks, LocalDateTime after) {
+        return super.addSubtasksAtFreeSlots(subtasks, after);
+    }
+
+    public synchronized void save() {
+        List<Integer> history = historyIds();
+        boolean historyChanged = !history.equals(persistedHistory);
+        if (dirty.isEmpty() && !historyChanged) {
+            return;
+        }
+
+        long nextGeneration = generation + 1;
+        Map<Segment, String> written = new HashMap<>();
+        Map<String, String> contents = new LinkedHashMap<>();
+        for (Segment segment : dirty) {
+            String content = render(segment);
+            if (content != null) {
+                String name = segment.fileName(nextGeneration);
+                written.put(segment, name);
+                contents.put(name, content);
+            }
+        }
+        String nextHistoryFile = historyFile;
+        if (historyChanged) {
+            nextHistoryFile = "history." + nextGeneration + ".csv";
+            contents.put(nextHistoryFile, renderHistory(history));
+        }
+
+        // Файлы сегментов независимы, поэтому пишутся параллельно
+        contents.entrySet().parallelStream().forEach(entry -> AtomicSnapshotFile.write(
+                new File(directory, entry.getKey()),
+                out -> out.write(entry.getValue().getBytes(StandardCharsets.UTF_8))));
+
+        Map<Segment, String> nextFiles = new HashMap<>(segmentFiles);
+        for (Segment segment : dirty) {
+            nextFiles.remove(segment);
+        }
+        nextFiles.putAll(written);
+        writeManifest(nextGeneration, nextFiles, nextHistoryFile);
+
+        List<String> obsolete = new ArrayList<>();
+        for (Segment segment : dirty) {
+            String old = segmentFiles.get(segment);
+            if (old != null) {
+                obsolete.add(old);
+            }
+        }
+        if (historyChanged && historyFile != null) {
+            obsolete.add(historyFile);
+        }
+
+        generation = nextGeneration;
+        segmentFiles.clear();
+        segmentFiles.putAll(nextFiles);
+        historyFile = nextHistoryFile;
+        persistedHistory = history;
+        dirty.clear();
+        for (String name : obsolete) {
+            new File(directory, name).delete();
+        }
+    }
+
+    private void markAndSave(TaskType type, int id) {
+        mark(type, id);
+        save();
+    }
+
+    // Изменение подзадачи может поменять статус эпика, который хранится в его сегменте
+    private void markSubtask(int id, int epicId) {
+        mark(TaskType.SUBTASK, id);
+        mark(TaskType.EPIC, epicId);
+    }
+
+    private void mark(TaskType type, int id) {
+        dirty.add(new Segment(type, id / segmentSize));
+    }
+
+    private void markAll(TaskType type) {
+        for (Segment segment : segmentFiles.keySet()) {
+            if (segment.type == type) {
+                dirty.add(segment);
+            }
+        }
+        Collection<? extends Task> stored = type == TaskType.TASK ? tasks.values()
+                : type == TaskType.EPIC ? epics.values() : subtasks.values();
+        for (Task task : stored) {
+            mark(type, task.getId());
+        }
+    }
+
+    // null - в диапазоне не осталось задач, файл сегмента больше не нужен
+    private String render(Segment segment) {
+        StringBuilder content = new StringBuilder(FileBackedTaskManager.CSV_HEADER).append('\n');
+        int from = segment.range * segmentSize;
+        int count = 0;
+        for (int id = from; id < from + segmentSize; id++) {
+            Task task = segment.type == TaskType.TASK ? tasks.get(id)
+                    : segment.type == TaskType.EPIC ? epics.get(id) : subtasks.get(id);
+            if (task != null) {
+                content.append(task.toCSVString()).append('\n');
+                count++;
+            }
+        }
+        return count == 0 ? null : content.toString();
+    }
+
+    private static String renderHistory(List<Integer> history) {
+        StringBuilder content = new StringBuilder();
+        for (int id : history) {
+            content.append(id).append('\n');
+        }
+        return content.toString();
+    }
+
+    private List<Integer> historyIds() {
+        List<Integer> ids = new ArrayList<>();
+        for (Task task : getHistory()) {
+            ids.add(task.getId());
+        }
+        return ids;
+    }
+
+    private void writeManifest(long nextGeneration, Map<Segment, String> files, String history) {
+        StringBuilder manifest = new StringBuilder(HEADER).append('\n');
+        manifest.append("GENERATION ").append(nextGeneration).append('\n');
+        for (Map.Entry<Segment, String> entry : files.entrySet()) {
+            manifest.append(entry.getKey().type).append(' ')
+                    .append(entry.getKey().range).append(' ')
+                    .append(entry.getValue()).append('\n');
+        }
+        if (history != null) {
+            manifest.append("HISTORY ").append(history).append('\n');
+        }
+        AtomicSnapshotFile.write(new File(directory, MANIFEST),
+                out -> out.write(manifest.toString().getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private void load() {
+        File manifest = new File(directory, MANIFEST);
+        if (manifest.exists()) {
+            readManifest(manifest);
+        }
+
+        List<String> names = new ArrayList<>(segmentFiles.values());
+        List<List<Task>> parsed = names.parallelStream().map(this::readSegment).toList();
+        List<Task> loaded = new ArrayList<>();
+        parsed.forEach(loaded::addAll);
+        for (Task task : loaded) {
+            if (task instanceof Epic) {
+                restoreTask(task);
+            }
+        }
+        for (Task task : loaded) {
+            if (!(task instanceof Epic)) {
+                restoreTask(task);
+            }
+        }
+        if (historyFile != null) {
+            restoreHistory(readHistory(historyFile));
+        }
+        persistedHistory = historyIds();
+        removeOrphans();
+    }
+
+    private void readManifest(File manifest) {
+        AtomicSnapshotFile.verify(manifest);
+        try (BufferedReader reader = new BufferedReader(new FileReader(manifest, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.trim().split(" ");
+                if (parts[0].isEmpty() || parts[0].startsWith("#")) {
+                    continue;
+                }
+                if (parts[0].equals("GENERATION")) {
+                    generation = Long.parseLong(parts[1]);
+                } else if (parts[0].equals("HISTORY")) {
+                    historyFile = parts[1];
+                } else {
+                    segmentFiles.put(new Segment(TaskType.valueOf(parts[0]), Integer.parseInt(parts[1])), parts[2]);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            throw new ManagerSaveException("Не удалось прочитать манифест " + manifest, e);
+        }
+    }
+
+    private List<Task> readSegment(String name) {
+        File file = new File(directory, name);
+        AtomicSnapshotFile.verify(file);
+        List<Task> result = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(file, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#") || line.startsWith("id,")) {
+                    continue;
+                }
+                Task task = Task.fromString(line);
+                if (task != null) {
+                    result.add(task);
+                }
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Не удалось загрузить сегмент " + file, e);
+        }
+        return result;
+    }
+
+    private List<Integer> readHistory(String name) {
+        File file = new File(directory, name);
+        AtomicSnapshotFile.verify(file);
+        List<Integer> ids = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(file, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                try {
+                    ids.add(Integer.parseInt(line.trim()));
+                } catch (NumberFormatException ignored) {
+                }
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Не удалось загрузить историю " + file, e);
+        }
+        return ids;
+    }
+
+    private void restoreHistory(List<Integer> ids) {
+        for (int id : ids) {
+            Task task = peekTask(id);
+            if (task == null) {
+                task = peekEpic(id);
+            }
+            if (task == null) {
+                task = peekSubtask(id);
+            }
+            if (task != null) {
+                historyManager.add(task);
+            }
+        }
+    }
+
+    // Файлы прерванной записи, на которые манифест так и не сослался
+    private void removeOrphans() {
+        Set<String> live = new HashSet<>(segmentFiles.values());
+        if (historyFile != null) {
+            live.add(historyFile);
+        }
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            String name = file.getName();
+            if (SEGMENT_FILE.matcher(name).matches() && !live.contains(name)) {
+                file.delete();
+            }
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package ru.practicum.manager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+
+/*
+ * Неизменяемый список, который пересобирается только после изменения данных. Версия читается
+ * до сборки, поэтому снимок, собранный во время параллельной записи, считается устаревшим
+ * и при следующем запросе будет собран заново.
+ */
+class SnapshotCache<T> {
+
+    private static class Snapshot<T> {
+        final long version;
+        final List<T> items;
+
+        Snapshot(long version, List<T> items) {
+            this.version = version;
+            this.items = items;
+        }
+    }
+
+    private volatile Snapshot<T> snapshot;
+
+    List<T> get(long version, Supplier<? extends Collection<? extends T>> source) {
+        Snapshot<T> current = snapshot;
+        if (current != null && current.version == version) {
+            return current.items;
+        }
+        List<T> items = Collections.unmodifiableList(new ArrayList<>(source.get()));
+        snapshot = new Snapshot<>(version, items);
+        return items;
+    }
+}
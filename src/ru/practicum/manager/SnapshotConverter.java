@@ -0,0 +1,28 @@
+package ru.practicum.manager;
+
+import java.io.File;
+
+public class SnapshotConverter {
+
+    private SnapshotConverter() {
+
+    }
+
+    public static void convert(File source, File target, SnapshotFormat targetFormat) {
+        if (!source.exists()) {
+            throw new ManagerSaveException("Исходный файл не найден: " + source);
+        }
+        // Формат исходного файла определяется автоматически, журнал рядом с ним не сворачивается
+        FileBackedTaskManager manager = FileBackedTaskManager.readOnly(source);
+        manager.writeSnapshot(target, targetFormat);
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.out.println("Использование: SnapshotConverter <исходный файл> <целевой файл> [CSV|BINARY]");
+            return;
+        }
+        SnapshotFormat format = args.length > 2 ? SnapshotFormat.valueOf(args[2]) : SnapshotFormat.BINARY;
+        convert(new File(args[0]), new File(args[1]), format);
+    }
+}
@@ -0,0 +1,5 @@
+package ru.practicum.manager;
+
+public enum SnapshotFormat {
+    CSV, BINARY
+}
@@ -0,0 +1,140 @@
+package ru.practicum.manager;
+
+import ru.practicum.model.Status;
+import ru.practicum.model.Subtask;
+import ru.practicum.model.Task;
+import ru.practicum.model.TaskType;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntFunction;
+
+class StatusIndex {
+
+    // Запоминаем, под каким ключом задача проиндексирована: объект мог измениться с тех пор
+    private static class Entry {
+        final TaskType type;
+        final Status status;
+        final int epicId;
+
+        Entry(TaskType type, Status status, int epicId) {
+            this.type = type;
+            this.status = status;
+            this.epicId = epicId;
+        }
+    }
+
+    // Индекс хранит только ID: сами задачи берутся из хранилища менеджера в момент запроса
+    private final boolean concurrent;
+    private final IntFunction<Task> resolver;
+    private final Map<Integer, Entry> entries;
+    private final Map<TaskType, Map<Status, Set<Integer>>> byType = new EnumMap<>(TaskType.class);
+    private final Map<Integer, Map<Status, Set<Integer>>> subtasksByEpic;
+
+    StatusIndex(boolean concurrent, IntFunction<Task> resolver) {
+        this.concurrent = concurrent;
+        this.resolver = resolver;
+        this.entries = newMap();
+        this.subtasksByEpic = newMap();
+        for (TaskType type : TaskType.values()) {
+            byType.put(type, newStatusMap());
+        }
+    }
+
+    void put(Task task) {
+        remove(task.getId());
+        Status status = task.getStatus();
+        if (status == null) {
+            return;
+        }
+        TaskType type = task.getType();
+        int epicId = task instanceof Subtask ? ((Subtask) task).getEpicID() : 0;
+        entries.put(task.getId(), new Entry(type, status, epicId));
+        byType.get(type).get(status).add(task.getId());
+        if (type == TaskType.SUBTASK) {
+            subtasksByEpic.computeIfAbsent(epicId, id -> newStatusMap())
+                    .get(status)
+                    .add(task.getId());
+        }
+    }
+
+    void remove(int id) {
+        Entry entry = entries.remove(id);
+        if (entry == null) {
+            return;
+        }
+        byType.get(entry.type).get(entry.status).remove(id);
+        if (entry.type == TaskType.SUBTASK) {
+            Map<Status, Set<Integer>> epicBuckets = subtasksByEpic.get(entry.epicId);
+            if (epicBuckets != null) {
+                epicBuckets.get(entry.status).remove(id);
+            }
+        }
+    }
+
+    void removeEpicSubtasks(int epicId) {
+        Map<Status, Set<Integer>> epicBuckets = subtasksByEpic.remove(epicId);
+        if (epicBuckets == null) {
+            return;
+        }
+        for (Set<Integer> bucket : epicBuckets.values()) {
+            for (Integer id : bucket) {
+                Entry entry = entries.remove(id);
+                if (entry != null) {
+                    byType.get(TaskType.SUBTASK).get(entry.status).remove(id);
+                }
+            }
+        }
+    }
+
+    void clear(TaskType type) {
+        for (Set<Integer> bucket : byType.get(type).values()) {
+            for (Integer id : bucket) {
+                entries.remove(id);
+            }
+            bucket.clear();
+        }
+        if (type == TaskType.SUBTASK) {
+            subtasksByEpic.clear();
+        }
+    }
+
+    List<Task> get(Status status, TaskType type) {
+        return resolve(byType.get(type).get(status));
+    }
+
+    List<Subtask> getEpicSubtasks(int epicId, Status status) {
+        Map<Status, Set<Integer>> epicBuckets = subtasksByEpic.get(epicId);
+        List<Subtask> result = new ArrayList<>();
+        if (epicBuckets != null) {
+            for (Task task : resolve(epicBuckets.get(status))) {
+                result.add((Subtask) task);
+            }
+        }
+        return result;
+    }
+
+    // В конкурентном режиме задачу могли удалить между чтением индекса и хранилища
+    private List<Task> resolve(Set<Integer> ids) {
+        List<Task> result = new ArrayList<>(ids.size());
+        for (Integer id : ids) {
+            Task task = resolver.apply(id);
+            if (task != null) {
+                result.add(task);
+            }
+        }
+        return result;
+    }
+
+    private Map<Status, Set<Integer>> newStatusMap() {
+        Map<Status, Set<Integer>> byStatus = new EnumMap<>(Status.class);
+        for (Status status : Status.values()) {
+            byStatus.put(status, concurrent ? ConcurrentHashMap.newKeySet() : new LinkedHashSet<>());
+        }
+        return byStatus;
+    }
+
+    private <K, V> Map<K, V> newMap() {
+        return concurrent ? new ConcurrentHashMap<>() : new LinkedHashMap<>();
+    }
+}
@@ -0,0 +1,82 @@
+package ru.practicum.manager;
+
+import ru.practicum.metrics.LatencyHistogram;
+import ru.practicum.model.Epic;
+import ru.practicum.model.Subtask;
+import ru.practicum.model.Task;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Пакетное добавление задач: ID резервируются сразу, чтобы подзадачи могли ссылаться на эпики
+ * из того же пакета, а в менеджер всё попадает только при commit() и только целиком.
+ * Сами задачи получают ID лишь при успешном commit(); незакоммиченный пакет отбрасывается в close().
+ */
+public class TaskBatch implements AutoCloseable {
+
+    private final InMemoryTaskManager manager;
+    private final List<Task> staged = new ArrayList<>();
+    private final List<Integer> ids = new ArrayList<>();
+    private boolean finished;
+    private LatencyHistogram commitLatency;
+
+    TaskBatch(InMemoryTaskManager manager) {
+        this.manager = manager;
+    }
+
+    public int addTask(Task task) {
+        return stage(task);
+    }
+
+    public int addEpic(Epic epic) {
+        return stage(epic);
+    }
+
+    public int addSubtask(Subtask subtask) {
+        return stage(subtask);
+    }
+
+    public int size() {
+        return staged.size();
+    }
+
+    public boolean commit() {
+        checkNotFinished();
+        finished = true;
+        if (commitLatency == null) {
+            return manager.commitBatch(staged, ids);
+        }
+        long start = System.nanoTime();
+        boolean committed = manager.commitBatch(staged, ids);
+        commitLatency.record(System.nanoTime() - start);
+        return committed;
+    }
+
+    // Подключается декоратором с метриками, чтобы пакетная запись не проходила мимо замеров
+    void recordCommitsTo(LatencyHistogram latency) {
+        this.commitLatency = latency;
+    }
+
+    @Override
+    public void close() {
+        finished = true;
+    }
+
+    private int stage(Task task) {
+        checkNotFinished();
+        if (task == null) {
+            return -1;
+        }
+        int id = manager.getNextID();
+        staged.add(task);
+        ids.add(id);
+        return id;
+    }
+
+    private void checkNotFinished() {
+        if (finished) {
+            throw new IllegalStateException("Пакет уже завершён");
+        }
+    }
+}
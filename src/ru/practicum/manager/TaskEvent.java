@@ -0,0 +1,79 @@
+package ru.practicum.manager;
+
+import ru.practicum.model.Epic;
+import ru.practicum.model.Subtask;
+import ru.practicum.model.Task;
+
+/*
+ * Событие изменения в менеджере. before/after - копии задачи на момент события, поэтому
+ * подписчик может обработать их позже, не боясь дальнейших изменений. Копия эпика содержит
+ * только его собственные поля: время и длительность считаются по подзадачам и в неё не входят.
+ */
+public class TaskEvent {
+
+    public enum Kind {
+        CREATED,
+        UPDATED,
+        DELETED,
+        EPIC_STATUS_CHANGED,
+        HISTORY_TOUCHED
+    }
+
+    private final long sequence;
+    private final Kind kind;
+    private final int taskId;
+    private final Task before;
+    private final Task after;
+
+    TaskEvent(long sequence, Kind kind, int taskId, Task before, Task after) {
+        this.sequence = sequence;
+        this.kind = kind;
+        this.taskId = taskId;
+        this.before = before;
+        this.after = after;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public int getTaskId() {
+        return taskId;
+    }
+
+    public Task getBefore() {
+        return before;
+    }
+
+    public Task getAfter() {
+        return after;
+    }
+
+    static Task copyOf(Task task) {
+        if (task == null) {
+            return null;
+        }
+        if (task instanceof Epic) {
+            return new Epic(task.getId(), task.getName(), task.getDescription(), task.getStatus());
+        }
+        if (task instanceof Subtask) {
+            return new Subtask(task.getId(), task.getName(), task.getDescription(), task.getStatus(),
+                    task.getStartTime(), task.getDuration(), ((Subtask) task).getEpicID());
+        }
+        return new Task(task.getId(), task.getName(), task.getDescription(), task.getStatus(),
+                task.getStartTime(), task.getDuration());
+    }
+
+    @Override
+    public String toString() {
+        return "ru.practicum.manager.TaskEvent{" +
+                "sequence=" + sequence +
+                ", kind=" + kind +
+                ", taskId=" + taskId +
+                '}';
+    }
+}
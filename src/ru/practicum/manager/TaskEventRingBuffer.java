@@ -0,0 +1,80 @@
+package ru.practicum.manager;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/*
+ * Ограниченная очередь без блокировок для многих писателей и одного читателя (схема Вьюкова):
+ * у каждой ячейки есть номер, по которому писатель понимает, свободна ли она, а читатель -
+ * опубликовано ли в ней событие. Писатели занимают позицию CAS-ом на хвосте.
+ */
+final class TaskEventRingBuffer {
+
+    private final AtomicReferenceArray<TaskEvent> items;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+
+    TaskEventRingBuffer(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Ёмкость буфера должна быть степенью двойки");
+        }
+        this.items = new AtomicReferenceArray<>(capacity);
+        this.sequences = new AtomicLongArray(capacity);
+        this.mask = capacity - 1;
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    // false - буфер заполнен
+    boolean offer(TaskEvent event) {
+        long position = tail.get();
+        while (true) {
+            int index = (int) (position & mask);
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    items.set(index, event);
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    // Вызывается только из потока читателя
+    int drainTo(List<TaskEvent> target, int limit) {
+        int drained = 0;
+        long position = head.get();
+        while (drained < limit) {
+            int index = (int) (position & mask);
+            if (sequences.get(index) != position + 1) {
+                break;
+            }
+            target.add(items.get(index));
+            items.set(index, null);
+            sequences.set(index, position + mask + 1);
+            position++;
+            drained++;
+        }
+        head.set(position);
+        return drained;
+    }
+
+    int size() {
+        return (int) Math.max(0, tail.get() - head.get());
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+}
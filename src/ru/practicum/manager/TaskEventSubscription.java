@@ -0,0 +1,129 @@
+package ru.practicum.manager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/*
+ * Подписка на события менеджера. Писатели кладут события в кольцевой буфер без блокировок,
+ * отдельный поток доставки забирает их пачками до maxBatchSize и передаёт подписчику.
+ * Когда буфер полон, поведение задаёт Overflow: BLOCK притормаживает писателя до
+ * освобождения места, DROP отбрасывает событие и увеличивает счётчик потерь. События,
+ * опубликованные после close(), тоже учитываются как потерянные.
+ * Обработчик вызывается в потоке доставки и не должен изменять задачи в том же менеджере:
+ * при BLOCK это может привести к взаимной блокировке.
+ */
+public class TaskEventSubscription implements AutoCloseable {
+
+    public enum Overflow {
+        BLOCK,
+        DROP
+    }
+
+    private static final long FULL_PARK_NANOS = 10_000;
+    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+    private final TaskEventRingBuffer buffer;
+    private final Consumer<List<TaskEvent>> consumer;
+    private final int maxBatchSize;
+    private final Overflow overflow;
+    private final Consumer<TaskEventSubscription> onClose;
+    private final Thread deliveryThread;
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong failedBatches = new AtomicLong();
+    // Писатели, уже прошедшие проверку closed: поток доставки дожидается их перед выходом
+    private final AtomicInteger publishing = new AtomicInteger();
+    private volatile boolean closed;
+
+    TaskEventSubscription(Consumer<List<TaskEvent>> consumer, int capacity, int maxBatchSize,
+                          Overflow overflow, Consumer<TaskEventSubscription> onClose) {
+        if (consumer == null || overflow == null || maxBatchSize <= 0) {
+            throw new IllegalArgumentException("Некорректные параметры подписки");
+        }
+        this.buffer = new TaskEventRingBuffer(capacity);
+        this.consumer = consumer;
+        this.maxBatchSize = maxBatchSize;
+        this.overflow = overflow;
+        this.onClose = onClose;
+        this.deliveryThread = new Thread(this::deliver, "task-events-" + THREAD_COUNTER.incrementAndGet());
+        deliveryThread.setDaemon(true);
+        deliveryThread.start();
+    }
+
+    void publish(TaskEvent event) {
+        publishing.incrementAndGet();
+        try {
+            while (closed || !buffer.offer(event)) {
+                if (closed || overflow == Overflow.DROP) {
+                    dropped.incrementAndGet();
+                    return;
+                }
+                LockSupport.unpark(deliveryThread);
+                LockSupport.parkNanos(FULL_PARK_NANOS);
+            }
+        } finally {
+            publishing.decrementAndGet();
+            LockSupport.unpark(deliveryThread);
+        }
+    }
+
+    private void deliver() {
+        List<TaskEvent> batch = new ArrayList<>(maxBatchSize);
+        while (true) {
+            batch.clear();
+            if (buffer.drainTo(batch, maxBatchSize) == 0) {
+                if (closed && publishing.get() == 0 && buffer.size() == 0) {
+                    return;
+                }
+                // Писатель будит поток после каждой публикации, так что ждать можно без таймаута
+                LockSupport.park(this);
+                continue;
+            }
+            try {
+                consumer.accept(List.copyOf(batch));
+            } catch (RuntimeException e) {
+                failedBatches.incrementAndGet();
+            }
+            delivered.addAndGet(batch.size());
+        }
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    public long getDeliveredCount() {
+        return delivered.get();
+    }
+
+    public long getFailedBatchCount() {
+        return failedBatches.get();
+    }
+
+    public int getPendingCount() {
+        return buffer.size();
+    }
+
+    // Новые события больше не принимаются, уже принятые доставляются до конца
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        onClose.accept(this);
+        LockSupport.unpark(deliveryThread);
+        if (Thread.currentThread() == deliveryThread) {
+            return;
+        }
+        try {
+            deliveryThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
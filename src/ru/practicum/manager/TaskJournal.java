@@ -0,0 +1,78 @@
+package ru.practicum.manager;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+class TaskJournal {
+
+    static final String UPSERT = "U";
+    static final String DELETE = "D";
+    static final String CLEAR = "C";
+    static final String HISTORY = "H";
+
+    private final File file;
+    private int size;
+
+    TaskJournal(File snapshotFile) {
+        this.file = new File(snapshotFile.getPath() + ".journal");
+    }
+
+    static String record(String operation, String payload) {
+        return operation + "," + payload + "\n";
+    }
+
+    // Запись подтверждается только после сброса на диск, как и снимок. Новый файл журнала
+    // дополнительно фиксируется сбросом каталога, иначе после сбоя он мог бы пропасть целиком
+    void append(String records) {
+        boolean created = !file.exists();
+        ByteBuffer buffer = ByteBuffer.wrap(records.getBytes(StandardCharsets.UTF_8));
+        try (FileChannel channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+            if (created) {
+                AtomicSnapshotFile.forceDirectory(file.toPath().toAbsolutePath().getParent());
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Не удалось записать журнал изменений", e);
+        }
+        size++;
+    }
+
+    List<String> readAll() {
+        if (!file.exists()) {
+            return new ArrayList<>();
+        }
+        try {
+            return Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Не удалось прочитать журнал изменений", e);
+        }
+    }
+
+    void truncate() {
+        try {
+            Files.deleteIfExists(file.toPath());
+        } catch (IOException e) {
+            throw new ManagerSaveException("Не удалось очистить журнал изменений", e);
+        }
+        size = 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    File getFile() {
+        return file;
+    }
+}
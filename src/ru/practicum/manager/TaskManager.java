@@ -1,9 +1,13 @@
 package ru.practicum.manager;
 
 import ru.practicum.model.Epic;
+import ru.practicum.model.Status;
 import ru.practicum.model.Subtask;
 import ru.practicum.model.Task;
+import ru.practicum.model.TaskType;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.List;
 
 public interface TaskManager {
@@ -25,6 +29,18 @@ public interface TaskManager {
 
     Subtask getSubtaskByID(int id);
 
+    Task peekTask(int id);
+
+    Epic peekEpic(int id);
+
+    Subtask peekSubtask(int id);
+
+    Task getTaskByID(int id, String sessionId);
+
+    Epic getEpicByID(int id, String sessionId);
+
+    Subtask getSubtaskByID(int id, String sessionId);
+
     List<Task> getTasks();
 
     List<Epic> getEpics();
@@ -33,6 +49,10 @@ public interface TaskManager {
 
     List<Subtask> getEpicSubtasks(int epicId);
 
+    List<Task> getTasksByStatus(Status status, TaskType type);
+
+    List<Subtask> getEpicSubtasksByStatus(int epicId, Status status);
+
     void deleteTasks();
 
     void deleteEpics();
@@ -47,5 +67,19 @@ public interface TaskManager {
 
     List<Task> getHistory();
 
+    List<Task> getHistory(String sessionId);
+
     List<Task> getPrioritizedTasks();
+
+    List<Task> getTasksBetween(LocalDateTime from, LocalDateTime to);
+
+    List<Task> getNextTasks(LocalDateTime after, int limit);
+
+    LocalDateTime findFreeSlot(LocalDateTime after, Duration duration);
+
+    int addTaskAtFreeSlot(Task task, LocalDateTime after);
+
+    List<Integer> addSubtasksAtFreeSlots(List<Subtask> subtasks, LocalDateTime after);
+
+    TaskBatch beginBatch();
 }
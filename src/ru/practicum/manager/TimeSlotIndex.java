@@ -0,0 +1,173 @@
+package ru.practicum.manager;
+
+import ru.practicum.model.Task;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.IntFunction;
+
+class TimeSlotIndex {
+
+    // Границы интервалов включительные, поэтому свободный слот начинается на шаг позже конца занятого
+    private static final Duration SLOT_STEP = Duration.ofMinutes(1);
+
+    private static class Slot {
+        final int id;
+        final LocalDateTime start;
+        final LocalDateTime end;
+
+        Slot(int id, LocalDateTime start, LocalDateTime end) {
+            this.id = id;
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    // Занятые интервалы не пересекаются, поэтому ключ по времени начала уникален
+    private final NavigableMap<LocalDateTime, Slot> slotsByStart;
+    private final Map<Integer, Slot> slotsById;
+    private final IntFunction<Task> resolver;
+
+    TimeSlotIndex(boolean concurrent, IntFunction<Task> resolver) {
+        this.resolver = resolver;
+        this.slotsByStart = concurrent ? new ConcurrentSkipListMap<>() : new TreeMap<>();
+        this.slotsById = concurrent ? new ConcurrentHashMap<>() : new HashMap<>();
+    }
+
+    void add(Task task) {
+        LocalDateTime start = task.getStartTime();
+        if (start == null) {
+            return;
+        }
+        remove(task.getId());
+        Slot slot = new Slot(task.getId(), start, endOf(task));
+        slotsByStart.put(start, slot);
+        slotsById.put(task.getId(), slot);
+    }
+
+    void remove(int id) {
+        Slot slot = slotsById.remove(id);
+        if (slot != null) {
+            slotsByStart.remove(slot.start, slot);
+        }
+    }
+
+    void clear() {
+        slotsByStart.clear();
+        slotsById.clear();
+    }
+
+    boolean hasIntersection(Task task) {
+        return hasIntersection(task, false);
+    }
+
+    // Старое положение обновляемой задачи не считается конфликтом. При добавлении слот
+    // с тем же ID исключать нельзя: иначе повторно добавленная задача заняла бы чужой слот
+    boolean hasIntersectionExceptOwnSlot(Task task) {
+        return hasIntersection(task, true);
+    }
+
+    private boolean hasIntersection(Task task, boolean exceptOwnSlot) {
+        LocalDateTime start = task.getStartTime();
+        if (start == null) {
+            return false;
+        }
+        LocalDateTime end = endOf(task);
+
+        // Слева может пересечься только ближайший интервал, начавшийся не позже нового
+        Map.Entry<LocalDateTime, Slot> before = slotsByStart.floorEntry(start);
+        if (before != null && isOther(before.getValue(), task, exceptOwnSlot) && !before.getValue().end.isBefore(start)) {
+            return true;
+        }
+        Map.Entry<LocalDateTime, Slot> after = slotsByStart.higherEntry(start);
+        while (after != null && !after.getKey().isAfter(end)) {
+            if (isOther(after.getValue(), task, exceptOwnSlot)) {
+                return true;
+            }
+            after = slotsByStart.higherEntry(after.getKey());
+        }
+        return false;
+    }
+
+    private static boolean isOther(Slot slot, Task task, boolean exceptOwnSlot) {
+        return !exceptOwnSlot || slot.id != task.getId();
+    }
+
+    List<Task> getTasks() {
+        List<Task> result = new ArrayList<>(slotsByStart.size());
+        for (Slot slot : slotsByStart.values()) {
+            addResolved(result, slot);
+        }
+        return result;
+    }
+
+    // Задачи, пересекающиеся с окном [from, to): интервалы не пересекаются между собой,
+    // поэтому слева в окно может заходить только одна задача
+    List<Task> getTasksBetween(LocalDateTime from, LocalDateTime to) {
+        List<Task> result = new ArrayList<>();
+        Map.Entry<LocalDateTime, Slot> before = slotsByStart.floorEntry(from);
+        if (before != null && (before.getKey().equals(from) || before.getValue().end.isAfter(from))) {
+            addResolved(result, before.getValue());
+        }
+        for (Slot slot : slotsByStart.subMap(from, false, to, false).values()) {
+            addResolved(result, slot);
+        }
+        return result;
+    }
+
+    List<Task> getNextTasks(LocalDateTime after, int limit) {
+        List<Task> result = new ArrayList<>(Math.min(limit, 16));
+        for (Slot slot : slotsByStart.tailMap(after, false).values()) {
+            if (result.size() == limit) {
+                break;
+            }
+            addResolved(result, slot);
+        }
+        return result;
+    }
+
+    // Подбирает подряд идущие свободные слоты под каждую длительность за один проход по расписанию
+    List<LocalDateTime> findFreeSlots(LocalDateTime after, List<Duration> durations) {
+        List<LocalDateTime> result = new ArrayList<>(durations.size());
+        LocalDateTime candidate = after;
+        Map.Entry<LocalDateTime, Slot> before = slotsByStart.floorEntry(after);
+        if (before != null && !before.getValue().end.isBefore(candidate)) {
+            candidate = before.getValue().end.plus(SLOT_STEP);
+        }
+
+        Iterator<Slot> slots = slotsByStart.tailMap(after, false).values().iterator();
+        Slot next = slots.hasNext() ? slots.next() : null;
+        for (Duration duration : durations) {
+            LocalDateTime end = candidate.plus(duration);
+            while (next != null && !end.isBefore(next.start)) {
+                if (!next.end.isBefore(candidate)) {
+                    candidate = next.end.plus(SLOT_STEP);
+                    end = candidate.plus(duration);
+                }
+                next = slots.hasNext() ? slots.next() : null;
+            }
+            result.add(candidate);
+            candidate = end.plus(SLOT_STEP);
+        }
+        return result;
+    }
+
+    int size() {
+        return slotsByStart.size();
+    }
+
+    private void addResolved(List<Task> result, Slot slot) {
+        Task task = resolver.apply(slot.id);
+        if (task != null) {
+            result.add(task);
+        }
+    }
+
+    private static LocalDateTime endOf(Task task) {
+        Duration duration = task.getDuration();
+        return duration == null ? task.getStartTime() : task.getStartTime().plus(duration);
+    }
+}
@@ -0,0 +1,20 @@
+package ru.practicum.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+public final class Counter {
+
+    private final AtomicLong value = new AtomicLong();
+
+    public void increment() {
+        value.incrementAndGet();
+    }
+
+    public void add(long delta) {
+        value.addAndGet(delta);
+    }
+
+    public long get() {
+        return value.get();
+    }
+}
@@ -0,0 +1,43 @@
+package ru.practicum.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+public class InMemoryMetricsRegistry implements MetricsRegistry {
+
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+    private final Map<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+
+    @Override
+    public Counter counter(String name) {
+        return counters.computeIfAbsent(name, key -> new Counter());
+    }
+
+    @Override
+    public LatencyHistogram histogram(String name) {
+        return histograms.computeIfAbsent(name, key -> new LatencyHistogram());
+    }
+
+    @Override
+    public void gauge(String name, LongSupplier value) {
+        gauges.put(name, value);
+    }
+
+    @Override
+    public Map<String, Long> snapshot() {
+        Map<String, Long> result = new TreeMap<>();
+        counters.forEach((name, counter) -> result.put(name, counter.get()));
+        gauges.forEach((name, gauge) -> result.put(name, gauge.getAsLong()));
+        histograms.forEach((name, histogram) -> {
+            result.put(name + ".count", histogram.getCount());
+            result.put(name + ".mean_ns", Math.round(histogram.getMean()));
+            result.put(name + ".p50_ns", histogram.getValueAtPercentile(50));
+            result.put(name + ".p99_ns", histogram.getValueAtPercentile(99));
+            result.put(name + ".max_ns", histogram.getMax());
+        });
+        return result;
+    }
+}
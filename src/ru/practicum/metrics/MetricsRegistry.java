@@ -0,0 +1,28 @@
+package ru.practicum.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/*
+ * Метрики запрашиваются по имени один раз при подключении, а дальше горячий путь работает
+ * с полученными объектами напрямую. Выгрузка - плоский снимок "имя -> значение".
+ */
+public interface MetricsRegistry {
+
+    Counter counter(String name);
+
+    LatencyHistogram histogram(String name);
+
+    void gauge(String name, LongSupplier value);
+
+    Map<String, Long> snapshot();
+
+    default void writeTo(Writer out) throws IOException {
+        for (Map.Entry<String, Long> entry : snapshot().entrySet()) {
+            out.write(entry.getKey() + " " + entry.getValue() + "\n");
+        }
+        out.flush();
+    }
+}
@@ -3,10 +3,39 @@ package ru.practicum.model;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
-import java.util.Objects;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 public class Epic extends Task {
-    private final ArrayList<Subtask> subtaskList = new ArrayList<>();
+
+    // Вклад подзадачи запоминается в момент добавления, чтобы его можно было точно вычесть
+    private static class Contribution {
+        final Subtask subtask;
+        final Status status;
+        final LocalDateTime startTime;
+        final LocalDateTime endTime;
+        final Duration duration;
+
+        Contribution(Subtask subtask) {
+            this.subtask = subtask;
+            this.status = subtask.getStatus();
+            this.startTime = subtask.getStartTime();
+            this.endTime = subtask.getEndTime();
+            this.duration = subtask.getDuration();
+        }
+    }
+
+    // Подзадачи по ID в порядке добавления: замена сохраняет позицию, удаление за O(1)
+    private final Map<Integer, Contribution> contributions = new LinkedHashMap<>();
+    private List<Subtask> subtaskSnapshot = List.of();
+    private final TreeMap<LocalDateTime, Integer> startTimes = new TreeMap<>();
+    private final TreeMap<LocalDateTime, Integer> endTimes = new TreeMap<>();
+    private long totalMinutes;
+    private int newCount;
+    private int doneCount;
 
     public Epic(int id, String name, String description, Status status) {
         super(id, name, description, status, null, null);
@@ -20,57 +49,134 @@ public class Epic extends Task {
         if (subtask == null) {
             return;
         }
-        subtaskList.add(subtask);
+        withdraw(subtask.getId());
+        contribute(subtask);
+    }
+
+    public void removeSubtask(Subtask subtask) {
+        if (subtask == null) {
+            return;
+        }
+        Contribution contribution = contributions.remove(subtask.getId());
+        if (contribution != null) {
+            withdraw(contribution);
+            subtaskSnapshot = null;
+        }
     }
 
     public void clearSubtasks() {
-        subtaskList.clear();
+        contributions.clear();
+        subtaskSnapshot = List.of();
+        startTimes.clear();
+        endTimes.clear();
+        totalMinutes = 0;
+        newCount = 0;
+        doneCount = 0;
     }
 
-    public ArrayList<Subtask> getSubtaskList() {
-        return subtaskList;
+    // Неизменяемый список, пересобирается только после изменения состава подзадач
+    public List<Subtask> getSubtaskList() {
+        List<Subtask> snapshot = subtaskSnapshot;
+        if (snapshot == null) {
+            List<Subtask> result = new ArrayList<>(contributions.size());
+            for (Contribution contribution : contributions.values()) {
+                result.add(contribution.subtask);
+            }
+            snapshot = Collections.unmodifiableList(result);
+            subtaskSnapshot = snapshot;
+        }
+        return snapshot;
     }
 
     public void updateSubtask(Subtask oldSubtask, Subtask newSubtask) {
-        subtaskList.remove(oldSubtask);
-        subtaskList.add(newSubtask);
+        if (oldSubtask != null && newSubtask != null && oldSubtask.getId() != newSubtask.getId()) {
+            removeSubtask(oldSubtask);
+        }
+        addSubtask(newSubtask);
+    }
+
+    public Status calculateStatus() {
+        int size = contributions.size();
+        if (size == 0 || newCount == size) {
+            return Status.NEW;
+        }
+        if (doneCount == size) {
+            return Status.DONE;
+        }
+        return Status.IN_PROGRESS;
+    }
+
+    private void contribute(Subtask subtask) {
+        Contribution contribution = new Contribution(subtask);
+        // Для уже известного ID put() оставляет подзадачу на прежнем месте
+        contributions.put(subtask.getId(), contribution);
+        subtaskSnapshot = null;
+        if (contribution.startTime != null) {
+            startTimes.merge(contribution.startTime, 1, Integer::sum);
+        }
+        if (contribution.endTime != null) {
+            endTimes.merge(contribution.endTime, 1, Integer::sum);
+        }
+        if (contribution.duration != null) {
+            totalMinutes += contribution.duration.toMinutes();
+        }
+        if (contribution.status == Status.NEW) {
+            newCount++;
+        } else if (contribution.status == Status.DONE) {
+            doneCount++;
+        }
+    }
+
+    private void withdraw(int subtaskId) {
+        Contribution contribution = contributions.get(subtaskId);
+        if (contribution != null) {
+            withdraw(contribution);
+        }
+    }
+
+    private void withdraw(Contribution contribution) {
+        if (contribution.startTime != null) {
+            decrement(startTimes, contribution.startTime);
+        }
+        if (contribution.endTime != null) {
+            decrement(endTimes, contribution.endTime);
+        }
+        if (contribution.duration != null) {
+            totalMinutes -= contribution.duration.toMinutes();
+        }
+        if (contribution.status == Status.NEW) {
+            newCount--;
+        } else if (contribution.status == Status.DONE) {
+            doneCount--;
+        }
+    }
+
+    private static void decrement(TreeMap<LocalDateTime, Integer> counts, LocalDateTime key) {
+        counts.computeIfPresent(key, (k, count) -> count == 1 ? null : count - 1);
     }
 
     @Override
     public LocalDateTime getStartTime() {
-        if (subtaskList.isEmpty()) {
+        if (contributions.isEmpty() || startTimes.isEmpty()) {
             return null;
         }
-        return subtaskList.stream()
-                .map(Subtask::getStartTime)
-                .filter(Objects::nonNull)
-                .min(LocalDateTime::compareTo)
-                .orElse(null);
+        return startTimes.firstKey();
     }
 
     @Override
     public Duration getDuration() {
-        if (subtaskList.isEmpty()) {
+        if (contributions.isEmpty()) {
             return null;
         }
-        long totalMinutes = subtaskList.stream()
-                .map(Subtask::getDuration)
-                .filter(Objects::nonNull)
-                .mapToLong(Duration::toMinutes)
-                .sum();
         return Duration.ofMinutes(totalMinutes);
     }
 
     @Override
     public LocalDateTime getEndTime() {
-        if (subtaskList.isEmpty()) {
+        if (contributions.isEmpty() || endTimes.isEmpty()) {
             return null;
         }
-        return subtaskList.stream()
-                .map(Subtask::getEndTime)
-                .filter(Objects::nonNull)
-                .max(LocalDateTime::compareTo)
-                .orElse(null);
+        return endTimes.lastKey();
     }
 
     @Override
@@ -80,8 +186,10 @@ public class Epic extends Task {
 
     @Override
     public String toCSVString() {
-        String startTimeStr = (getStartTime() != null) ? getStartTime().toString() : "";
-        String durationStr = (getDuration() != null) ? String.valueOf(getDuration().toMinutes()) : "";
+        LocalDateTime start = getStartTime();
+        Duration total = getDuration();
+        String startTimeStr = (start != null) ? start.toString() : "";
+        String durationStr = (total != null) ? String.valueOf(total.toMinutes()) : "";
         return String.format("%d,%s,%s,%s,%s,%s,%s", id, getType(), name, status, description, startTimeStr, durationStr);
     }
 
@@ -91,7 +199,7 @@ public class Epic extends Task {
                 "name='" + name + '\'' +
                 ", description='" + description + '\'' +
                 ", id=" + id +
-                ", subtaskList.size=" + subtaskList.size() +
+                ", subtaskList.size=" + contributions.size() +
                 ", status=" + status +
                 ", startTime=" + getStartTime() +
                 ", duration=" + getDuration() +
@@ -0,0 +1,79 @@
+package ru.practicum.manager;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.practicum.model.Status;
+import ru.practicum.model.Task;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompactTaskManagerTest extends TaskManagerTest<InMemoryTaskManager> {
+
+    @BeforeEach
+    void beforeEach() {
+        taskManager = InMemoryTaskManager.withCompactStorage();
+    }
+
+    @Test
+    void shouldMaterializeStoredTaskWithSameFields() {
+        LocalDateTime start = LocalDateTime.of(2024, 6, 10, 10, 0);
+        Task task = new Task("Task", "Desc", start, Duration.ofMinutes(45));
+        int id = taskManager.addTask(task);
+
+        Task stored = taskManager.getTaskByID(id);
+
+        assertNotSame(task, stored);
+        assertEquals(task, stored);
+        assertEquals("Task", stored.getName());
+        assertEquals(Status.NEW, stored.getStatus());
+        assertEquals(start, stored.getStartTime());
+        assertEquals(Duration.ofMinutes(45), stored.getDuration());
+    }
+
+    @Test
+    void shouldShareRepeatedStrings() {
+        CompactTaskStore store = new CompactTaskStore();
+        Task first = new Task(1, "Daily", new String("Standup"), Status.NEW, null, null);
+        Task second = new Task(2, "Daily", new String("Standup"), Status.DONE, null, null);
+        store.put(1, first);
+        store.put(2, second);
+
+        assertSame(store.get(1).getDescription(), store.get(2).getDescription());
+        assertEquals(Status.DONE, store.get(2).getStatus());
+        assertNull(store.get(2).getStartTime());
+    }
+
+    @Test
+    void shouldReleaseStringsOnOverwriteAndRemove() {
+        CompactTaskStore store = new CompactTaskStore();
+        for (int i = 0; i < 1000; i++) {
+            store.put(1, new Task(1, "Name " + i, "Desc " + i, Status.NEW, null, null));
+        }
+        assertEquals(2, store.internedStrings());
+
+        store.put(2, new Task(2, "Name 999", "Other", Status.NEW, null, null));
+        store.remove(1);
+
+        assertEquals(1, store.size());
+        assertEquals(2, store.internedStrings());
+        assertEquals("Name 999", store.get(2).getName());
+        store.remove(2);
+        assertEquals(0, store.internedStrings());
+    }
+
+    @Test
+    void shouldKeepSecondsAndNanosOfStartAndDuration() {
+        LocalDateTime start = LocalDateTime.of(2024, 6, 10, 10, 0, 30, 500);
+        Duration duration = Duration.ofSeconds(90, 7);
+        int id = taskManager.addTask(new Task("Task", "Desc", start, duration));
+
+        Task stored = taskManager.peekTask(id);
+
+        assertEquals(start, stored.getStartTime());
+        assertEquals(duration, stored.getDuration());
+        assertEquals(stored.getStartTime(), taskManager.getPrioritizedTasks().get(0).getStartTime());
+    }
+}
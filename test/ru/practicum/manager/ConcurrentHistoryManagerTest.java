@@ -0,0 +1,91 @@
+package ru.practicum.manager;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.model.Task;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentHistoryManagerTest {
+
+    private static Task task(int id) {
+        Task task = new Task("Task" + id, "Desc");
+        task.setId(id);
+        return task;
+    }
+
+    @Test
+    void shouldMoveRepeatedViewToEndAndEvictOldest() {
+        HistoryManager history = new ConcurrentHistoryManager(3, HistoryEvictionPolicy.LEAST_RECENTLY_VIEWED);
+        history.add(task(1));
+        history.add(task(2));
+        history.add(task(3));
+        history.add(task(1));
+        history.add(task(4));
+
+        assertEquals(List.of(task(3), task(1), task(4)), history.getHistory());
+    }
+
+    @Test
+    void shouldKeepFirstViewPositionWithFirstViewedPolicy() {
+        HistoryManager history = new ConcurrentHistoryManager(3, HistoryEvictionPolicy.FIRST_VIEWED);
+        history.add(task(1));
+        history.add(task(2));
+        history.add(task(1));
+        history.add(task(3));
+        history.add(task(4));
+
+        assertEquals(List.of(task(2), task(3), task(4)), history.getHistory());
+    }
+
+    @Test
+    void shouldRejectInvalidSettingsLikeInMemoryHistory() {
+        assertThrows(IllegalArgumentException.class, () -> new ConcurrentHistoryManager(3, null));
+        assertThrows(IllegalArgumentException.class,
+                () -> new ConcurrentHistoryManager(0, HistoryEvictionPolicy.LEAST_RECENTLY_VIEWED));
+    }
+
+    @Test
+    void shouldReturnStableSnapshot() {
+        HistoryManager history = new ConcurrentHistoryManager(5, HistoryEvictionPolicy.LEAST_RECENTLY_VIEWED);
+        history.add(task(1));
+        List<Task> snapshot = history.getHistory();
+
+        history.add(task(2));
+        history.remove(1);
+
+        assertEquals(List.of(task(1)), snapshot);
+        assertEquals(List.of(task(2)), history.getHistory());
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.add(task(3)));
+    }
+
+    @Test
+    void shouldStayConsistentUnderConcurrentViews() throws InterruptedException {
+        int capacity = 50;
+        HistoryManager history = new ConcurrentHistoryManager(capacity, HistoryEvictionPolicy.LEAST_RECENTLY_VIEWED);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int thread = 0; thread < 8; thread++) {
+            int offset = thread * 1000;
+            executor.submit(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    history.add(task(offset + i % 100));
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        List<Task> snapshot = history.getHistory();
+        assertEquals(capacity, snapshot.size());
+        Set<Integer> ids = new HashSet<>();
+        for (Task task : snapshot) {
+            assertTrue(ids.add(task.getId()), "В истории не должно быть повторов");
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package ru.practicum.manager;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.practicum.model.Epic;
+import ru.practicum.model.Status;
+import ru.practicum.model.Subtask;
+import ru.practicum.model.Task;
+import ru.practicum.model.TaskType;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConcurrentTaskManagerTest extends TaskManagerTest<ConcurrentTaskManager> {
+
+    @BeforeEach
+    void beforeEach() {
+        taskManager = new ConcurrentTaskManager();
+    }
+
+    @Test
+    void shouldAssignUniqueIdsUnderConcurrentWrites() throws InterruptedException {
+        int epicCount = 8;
+        int subtasksPerEpic = 500;
+        int[] epicIds = new int[epicCount];
+        for (int i = 0; i < epicCount; i++) {
+            epicIds[i] = taskManager.addEpic(new Epic("Эпик " + i, "Описание"));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(epicCount);
+        for (int epicId : epicIds) {
+            executor.submit(() -> {
+                for (int j = 0; j < subtasksPerEpic; j++) {
+                    taskManager.addSubtask(new Subtask("Подзадача", "Описание", epicId));
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        List<Subtask> subtasks = taskManager.getSubtasks();
+        assertEquals(epicCount * subtasksPerEpic, subtasks.size());
+        Set<Integer> ids = new HashSet<>();
+        for (Subtask subtask : subtasks) {
+            assertTrue(ids.add(subtask.getId()), "ID не должны повторяться");
+        }
+        for (int epicId : epicIds) {
+            assertEquals(subtasksPerEpic, taskManager.getEpicSubtasks(epicId).size());
+        }
+    }
+
+    @Test
+    void shouldAcceptOnlyOneOfConcurrentOverlappingTasks() throws InterruptedException {
+        LocalDateTime start = LocalDateTime.of(2024, 6, 10, 10, 0);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 64; i++) {
+            executor.submit(() -> taskManager.addTask(new Task("Задача", "Описание", start, Duration.ofMinutes(30))));
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertEquals(1, taskManager.getPrioritizedTasks().size());
+    }
+
+    @Test
+    void shouldReadEpicSubtasksWhileTheyChange() throws Exception {
+        int epicId = taskManager.addEpic(new Epic("Эпик", "Описание"));
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        Future<?> writer = executor.submit(() -> {
+            for (int i = 0; i < 5_000; i++) {
+                int id = taskManager.addSubtask(new Subtask("Подзадача", "Описание", epicId));
+                if (i % 2 == 0) {
+                    taskManager.deleteSubtaskByID(id);
+                }
+            }
+        });
+        Future<?> reader = executor.submit(() -> {
+            while (!writer.isDone()) {
+                for (Subtask subtask : taskManager.getEpicSubtasks(epicId)) {
+                    assertEquals(epicId, subtask.getEpicID());
+                }
+            }
+        });
+        writer.get(30, TimeUnit.SECONDS);
+        reader.get(30, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        assertEquals(2_500, taskManager.getEpicSubtasks(epicId).size());
+    }
+
+    @Test
+    void shouldNotLoseEpicsAddedConcurrentlyWithBulkDelete() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        Future<?> adder = executor.submit(() -> {
+            for (int i = 0; i < 2_000; i++) {
+                taskManager.addEpic(new Epic("Эпик", "Описание"));
+            }
+        });
+        while (!adder.isDone()) {
+            taskManager.deleteEpics();
+        }
+        adder.get(30, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        // Индекс статусов и хранилище должны совпадать: очистка не стирает чужие вставки
+        assertEquals(taskManager.getEpics().size(),
+                taskManager.getTasksByStatus(Status.NEW, TaskType.EPIC).size());
+    }
+}
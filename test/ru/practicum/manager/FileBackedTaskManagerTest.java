@@ -4,12 +4,28 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import ru.practicum.model.Epic;
+import ru.practicum.model.Status;
 import ru.practicum.model.Subtask;
 import ru.practicum.model.Task;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -30,6 +46,9 @@ public class FileBackedTaskManagerTest extends TaskManagerTest<FileBackedTaskMan
         if (tempFile != null && tempFile.exists()) {
             assertTrue(tempFile.delete(), "Не удалось удалить временный файл");
         }
+        if (tempFile != null) {
+            new File(tempFile.getPath() + ".journal").delete();
+        }
     }
 
     @Test
@@ -107,4 +126,396 @@ public class FileBackedTaskManagerTest extends TaskManagerTest<FileBackedTaskMan
             }
         });
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldReplayJournalOnLoad() {
+        FileBackedTaskManager journaled = FileBackedTaskManager.withJournal(tempFile, 100);
+        int taskId = journaled.addTask(new Task("Задача", "Описание"));
+        int epicId = journaled.addEpic(new Epic("Эпик", "Описание"));
+        Subtask subtask = new Subtask("Подзадача", "Описание", epicId);
+        subtask.setStatus(Status.DONE);
+        int subtaskId = journaled.addSubtask(subtask);
+        journaled.getSubtaskByID(subtaskId);
+        journaled.deleteTaskByID(taskId);
+
+        File journalFile = new File(tempFile.getPath() + ".journal");
+        assertTrue(journalFile.exists(), "Изменения должны попадать в журнал");
+        assertEquals(0, tempFile.length(), "Снимок не должен перезаписываться до компактификации");
+
+        FileBackedTaskManager reloaded = FileBackedTaskManager.loadFromFile(tempFile);
+        assertTrue(reloaded.getTasks().isEmpty());
+        assertEquals(Status.DONE, reloaded.getEpicByID(epicId).getStatus());
+        assertEquals(subtaskId, reloaded.getSubtasks().get(0).getId());
+        assertEquals(subtaskId, reloaded.getHistory().get(0).getId());
+        assertFalse(journalFile.exists(), "После загрузки журнал должен быть свёрнут в снимок");
+    }
+
+    @Test
+    void shouldCompactJournalWhenThresholdReached() {
+        FileBackedTaskManager journaled = FileBackedTaskManager.withJournal(tempFile, 3);
+        journaled.addTask(new Task("Первая", "Описание"));
+        journaled.addTask(new Task("Вторая", "Описание"));
+        journaled.addTask(new Task("Третья", "Описание"));
+
+        assertFalse(new File(tempFile.getPath() + ".journal").exists());
+        assertEquals(3, FileBackedTaskManager.loadFromFile(tempFile).getTasks().size());
+    }
+
+    @Test
+    void shouldSaveAndLoadBinarySnapshot() {
+        FileBackedTaskManager binary = new FileBackedTaskManager(tempFile, SnapshotFormat.BINARY);
+        LocalDateTime start = LocalDateTime.of(2024, 6, 10, 10, 0);
+        int taskId = binary.addTask(new Task("Задача", "Описание", start, Duration.ofMinutes(30)));
+        int epicId = binary.addEpic(new Epic("Эпик", null));
+        int subtaskId = binary.addSubtask(new Subtask("Подзадача", "Описание", epicId,
+                start.plusHours(1), Duration.ofMinutes(45)));
+        binary.getTaskByID(taskId);
+
+        FileBackedTaskManager reloaded = FileBackedTaskManager.loadFromFile(tempFile);
+
+        Task loadedTask = reloaded.getTaskByID(taskId);
+        assertEquals("Задача", loadedTask.getName());
+        assertEquals(start, loadedTask.getStartTime());
+        assertEquals(Duration.ofMinutes(30), loadedTask.getDuration());
+        assertNull(reloaded.getEpicByID(epicId).getDescription());
+        assertEquals(start.plusHours(1), reloaded.getEpicByID(epicId).getStartTime());
+        assertEquals(epicId, reloaded.getSubtaskByID(subtaskId).getEpicID());
+        assertEquals(2, reloaded.getPrioritizedTasks().size());
+    }
+
+    @Test
+    void shouldConvertCsvSnapshotToBinary() throws IOException {
+        taskManager.addTask(new Task("Задача", "Описание"));
+        File binaryFile = Files.createTempFile("tasks", ".bin").toFile();
+        try {
+            SnapshotConverter.convert(tempFile, binaryFile, SnapshotFormat.BINARY);
+
+            assertTrue(BinarySnapshotCodec.isBinary(binaryFile));
+            assertEquals("Задача", FileBackedTaskManager.loadFromFile(binaryFile).getTasks().get(0).getName());
+        } finally {
+            binaryFile.delete();
+        }
+    }
+
+    @Test
+    void shouldNotTouchSourceJournalWhenConverting() throws IOException {
+        FileBackedTaskManager journaled = FileBackedTaskManager.withJournal(tempFile, 100);
+        journaled.addTask(new Task("Задача", "Описание"));
+        File journalFile = new File(tempFile.getPath() + ".journal");
+        byte[] journalBefore = Files.readAllBytes(journalFile.toPath());
+        File binaryFile = Files.createTempFile("tasks", ".bin").toFile();
+        try {
+            SnapshotConverter.convert(tempFile, binaryFile, SnapshotFormat.BINARY);
+
+            assertEquals(0, tempFile.length(), "Исходный снимок не должен перезаписываться");
+            assertArrayEquals(journalBefore, Files.readAllBytes(journalFile.toPath()));
+            assertEquals("Задача", FileBackedTaskManager.loadFromFile(binaryFile).getTasks().get(0).getName());
+        } finally {
+            binaryFile.delete();
+        }
+    }
+
+    @Test
+    void shouldKeepBinaryFormatWhenLoadedWithoutFormat() throws IOException {
+        File binaryFile = Files.createTempFile("tasks", ".bin").toFile();
+        try {
+            new FileBackedTaskManager(binaryFile, SnapshotFormat.BINARY).addTask(new Task("Задача", "Описание"));
+
+            FileBackedTaskManager.loadFromFile(binaryFile).addTask(new Task("Ещё задача", "Описание"));
+
+            assertTrue(BinarySnapshotCodec.isBinary(binaryFile));
+            assertEquals(2, FileBackedTaskManager.loadFromFile(binaryFile).getTasks().size());
+        } finally {
+            binaryFile.delete();
+        }
+    }
+
+    @Test
+    void shouldPersistCommittedBatch() {
+        FileBackedTaskManager journaled = FileBackedTaskManager.withJournal(tempFile, 100);
+        try (TaskBatch batch = journaled.beginBatch()) {
+            int epicId = batch.addEpic(new Epic("Эпик", "Описание"));
+            batch.addSubtask(new Subtask("Подзадача", "Описание", epicId));
+            batch.addTask(new Task("Задача", "Описание"));
+            assertTrue(batch.commit());
+        }
+
+        FileBackedTaskManager reloaded = FileBackedTaskManager.loadFromFile(tempFile);
+        assertEquals(1, reloaded.getTasks().size());
+        assertEquals(1, reloaded.getEpicSubtasks(reloaded.getEpics().get(0).getId()).size());
+    }
+
+    @Test
+    void shouldNotReuseIdsWhenBatchStagesConcurrentlyWithAdds() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try (TaskBatch batch = taskManager.beginBatch()) {
+            Future<?> stager = executor.submit(() -> {
+                for (int i = 0; i < 1_000; i++) {
+                    batch.addTask(new Task("Из пакета", "Описание"));
+                }
+            });
+            for (int i = 0; i < 200; i++) {
+                taskManager.addTask(new Task("Напрямую", "Описание"));
+            }
+            stager.get(30, TimeUnit.SECONDS);
+            assertTrue(batch.commit());
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(1_200, taskManager.getTasks().size());
+    }
+
+    @Test
+    void shouldReplaceStateOnImport() throws IOException {
+        int taskId = taskManager.addTask(new Task("Из снимка", "Описание"));
+        ByteArrayOutputStream snapshot = new ByteArrayOutputStream();
+        taskManager.export(snapshot, SnapshotFormat.CSV);
+
+        File otherFile = Files.createTempFile("tasks-import", ".csv").toFile();
+        try {
+            FileBackedTaskManager target = new FileBackedTaskManager(otherFile);
+            int staleId = target.addEpic(new Epic("Старый эпик", "Описание"));
+            target.addTask(new Task("Старая задача", "Описание"));
+            target.getEpicByID(staleId);
+
+            target.importFrom(new ByteArrayInputStream(snapshot.toByteArray()));
+
+            assertTrue(target.getEpics().isEmpty());
+            assertEquals(List.of(taskId), target.getTasks().stream().map(Task::getId).toList());
+            assertEquals("Из снимка", target.getTasks().get(0).getName());
+            assertTrue(target.getHistory().isEmpty());
+            assertEquals(taskId + 1, target.addTask(new Task("Новая", "Описание")));
+        } finally {
+            otherFile.delete();
+        }
+    }
+
+    @Test
+    void shouldKeepStateWhenImportFailsMidway() throws IOException {
+        int epicId = taskManager.addEpic(new Epic("Эпик", "Описание"));
+        taskManager.getEpicByID(epicId);
+        byte[] head = (FileBackedTaskManager.CSV_HEADER + "\n10,TASK,Чужая,NEW,Описание,,\n")
+                .getBytes(StandardCharsets.UTF_8);
+        InputStream broken = new SequenceInputStream(new ByteArrayInputStream(head), new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("Обрыв потока");
+            }
+        });
+
+        assertThrows(IOException.class, () -> taskManager.importFrom(broken));
+
+        assertTrue(taskManager.getTasks().isEmpty());
+        assertEquals(List.of(epicId), taskManager.getEpics().stream().map(Task::getId).toList());
+        assertEquals(epicId, taskManager.getHistory().get(0).getId());
+        assertEquals(1, FileBackedTaskManager.loadFromFile(tempFile).getEpics().size());
+    }
+
+    @Test
+    void shouldStreamExportIntoAnotherManagerThroughCompression() throws IOException {
+        int epicId = taskManager.addEpic(new Epic("Эпик", "Описание"));
+        int subtaskId = taskManager.addSubtask(new Subtask("Подзадача", "Описание", epicId));
+        taskManager.getSubtaskByID(subtaskId);
+
+        File otherFile = Files.createTempFile("tasks-import", ".csv").toFile();
+        try {
+            for (SnapshotFormat format : SnapshotFormat.values()) {
+                ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+                try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+                    taskManager.export(out, format);
+                }
+
+                FileBackedTaskManager imported = new FileBackedTaskManager(otherFile);
+                try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed.toByteArray()))) {
+                    imported.importFrom(in);
+                }
+
+                assertEquals(subtaskId, imported.getEpicSubtasks(epicId).get(0).getId());
+                assertEquals(subtaskId, imported.getHistory().get(0).getId());
+                assertEquals(1, FileBackedTaskManager.loadFromFile(otherFile).getSubtasks().size(),
+                        "Импортированные данные должны сохраниться в файл");
+            }
+        } finally {
+            otherFile.delete();
+        }
+    }
+
+    @Test
+    void shouldCoalesceAsyncSavesUntilFlush() {
+        try (FileBackedTaskManager async = FileBackedTaskManager.withAsyncSave(tempFile, SnapshotFormat.CSV,
+                60_000, 1000)) {
+            async.addTask(new Task("Первая", "Описание"));
+            async.addTask(new Task("Вторая", "Описание"));
+            async.addEpic(new Epic("Эпик", "Описание"));
+
+            assertEquals(3, async.getPendingMutations());
+            assertEquals(0, tempFile.length(), "До flush() снимок не должен записываться");
+
+            async.flush();
+
+            assertEquals(0, async.getPendingMutations());
+            FileBackedTaskManager reloaded = FileBackedTaskManager.loadFromFile(tempFile);
+            assertEquals(2, reloaded.getTasks().size());
+            assertEquals(1, reloaded.getEpics().size());
+        }
+    }
+
+    @Test
+    void shouldNotOverwriteImportWithStaleBackgroundSnapshot() throws Exception {
+        ByteArrayOutputStream single = new ByteArrayOutputStream();
+        taskManager.addTask(new Task("Из импорта", "Описание"));
+        taskManager.export(single, SnapshotFormat.CSV);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try (FileBackedTaskManager async = FileBackedTaskManager.withAsyncSave(tempFile, SnapshotFormat.CSV,
+                60_000, 1_000_000)) {
+            for (int round = 0; round < 5; round++) {
+                for (int i = 0; i < 2_000; i++) {
+                    async.addTask(new Task("Задача " + i, "Описание"));
+                }
+                Future<?> flush = executor.submit(async::flush);
+                async.importFrom(new ByteArrayInputStream(single.toByteArray()));
+                flush.get(30, TimeUnit.SECONDS);
+
+                assertEquals(1, async.getTasks().size());
+                assertEquals(1, FileBackedTaskManager.loadFromFile(tempFile).getTasks().size(),
+                        "Фоновая запись не должна затирать более новый снимок");
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void shouldWriteAsyncSnapshotWhenDirtyLimitReached() throws InterruptedException {
+        try (FileBackedTaskManager async = FileBackedTaskManager.withAsyncSave(tempFile, SnapshotFormat.CSV,
+                60_000, 2)) {
+            async.addTask(new Task("Первая", "Описание"));
+            async.addTask(new Task("Вторая", "Описание"));
+
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (async.getPendingMutations() > 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+
+            assertEquals(0, async.getPendingMutations());
+            assertEquals(2, FileBackedTaskManager.loadFromFile(tempFile).getTasks().size());
+        }
+    }
+
+    @Test
+    void shouldRejectMutationsAfterClose() {
+        FileBackedTaskManager async = FileBackedTaskManager.withAsyncSave(tempFile, SnapshotFormat.CSV, 60_000, 1000);
+        async.addTask(new Task("Первая", "Описание"));
+        async.close();
+
+        assertThrows(IllegalStateException.class, () -> async.addTask(new Task("Вторая", "Описание")));
+        assertEquals(1, async.getTasks().size());
+        assertEquals(1, FileBackedTaskManager.loadFromFile(tempFile).getTasks().size());
+    }
+
+    @Test
+    void shouldWriteChecksumTrailerAndLeaveNoTemporaryFiles() throws IOException {
+        taskManager.addTask(new Task("Задача", "Описание"));
+
+        List<String> lines = Files.readAllLines(tempFile.toPath());
+        assertTrue(lines.get(lines.size() - 1).startsWith("#crc32c:"));
+        File[] leftovers = tempFile.getParentFile().listFiles((dir, name) ->
+                name.startsWith(tempFile.getName()) && name.endsWith(".tmp"));
+        assertEquals(0, leftovers.length, "Временные файлы должны удаляться после записи");
+    }
+
+    @Test
+    void shouldRejectCorruptedSnapshot() throws IOException {
+        taskManager.addTask(new Task("Задача", "Описание"));
+
+        String content = Files.readString(tempFile.toPath());
+        Files.writeString(tempFile.toPath(), content.replace("Задача", "Задачи"));
+
+        assertThrows(ManagerSaveException.class, () -> FileBackedTaskManager.loadFromFile(tempFile));
+    }
+
+    @Test
+    void shouldServeLookupsFromMappedSnapshotAndHydrate() {
+        for (SnapshotFormat format : SnapshotFormat.values()) {
+            FileBackedTaskManager source = new FileBackedTaskManager(tempFile, format);
+            source.deleteTasks();
+            source.deleteEpics();
+            int taskId = source.addTask(new Task("Задача", "Описание",
+                    LocalDateTime.of(2024, 6, 10, 10, 0), Duration.ofMinutes(30)));
+            int epicId = source.addEpic(new Epic("Эпик", "Описание"));
+            int subtaskId = source.addSubtask(new Subtask("Подзадача", "Описание", epicId));
+
+            MappedSnapshot snapshot = MappedSnapshot.open(tempFile);
+            assertEquals(3, snapshot.size());
+            assertEquals("Задача", snapshot.find(taskId).getName());
+            assertEquals(epicId, ((Subtask) snapshot.find(subtaskId)).getEpicID());
+            assertNull(snapshot.find(999));
+
+            MappedTaskManager mapped = Managers.getMappedFileBackedManager(tempFile);
+            assertEquals(LocalDateTime.of(2024, 6, 10, 10, 0), mapped.getTaskByID(taskId).getStartTime());
+            assertNull(mapped.peekSubtask(taskId));
+            assertEquals(epicId, mapped.getSubtaskByID(subtaskId).getEpicID());
+
+            FileBackedTaskManager hydrated = mapped.awaitHydration();
+            assertTrue(mapped.isHydrated());
+            assertEquals(List.of(taskId, subtaskId), mapped.getHistory().stream().map(Task::getId).toList());
+            assertEquals(1, hydrated.getEpicSubtasks(epicId).size());
+            mapped.close();
+        }
+    }
+
+    @Test
+    void shouldNotMapSnapshotWithBrokenChecksum() throws IOException {
+        taskManager.addTask(new Task("Задача", "Описание"));
+        byte[] content = Files.readAllBytes(tempFile.toPath());
+        int position = new String(content, StandardCharsets.UTF_8).indexOf("TASK");
+        content[position] = 'X';
+        Files.write(tempFile.toPath(), content);
+
+        assertThrows(ManagerSaveException.class, () -> MappedSnapshot.open(tempFile));
+        MappedSnapshot mappedOnly = assertDoesNotThrow(() -> MappedSnapshot.map(tempFile),
+                "Отображение читает только заголовок, сумма проверяется в фоне");
+        assertThrows(ManagerSaveException.class, () -> mappedOnly.verifyAndIndex(tempFile));
+
+        MappedTaskManager mapped = new MappedTaskManager(tempFile);
+        assertThrows(ManagerSaveException.class, () -> mapped.peekTask(1));
+    }
+
+    @Test
+    void shouldLoadLargeCsvInParallelLikeSequentialLoad() {
+        try (TaskBatch batch = taskManager.beginBatch()) {
+            for (int i = 0; i < 2000; i++) {
+                int epicId = batch.addEpic(new Epic("Эпик " + i, "Описание эпика"));
+                batch.addSubtask(new Subtask("Подзадача " + i, "Описание подзадачи", epicId));
+                batch.addTask(new Task("Задача " + i, "Описание задачи"));
+            }
+            assertTrue(batch.commit());
+        }
+        taskManager.getTaskByID(3);
+        taskManager.getSubtaskByID(2);
+        taskManager.save();
+        assertTrue(tempFile.length() > 64 * 1024, "Файл должен делиться на несколько кусков");
+
+        FileBackedTaskManager sequential = FileBackedTaskManager.loadFromFile(tempFile);
+        FileBackedTaskManager parallel = FileBackedTaskManager.withParallelLoad(tempFile, SnapshotFormat.CSV, 4);
+
+        assertEquals(sequential.getTasks(), parallel.getTasks());
+        assertEquals(sequential.getEpics(), parallel.getEpics());
+        assertEquals(sequential.getSubtasks(), parallel.getSubtasks());
+        assertEquals(List.of(3, 2), parallel.getHistory().stream().map(Task::getId).toList());
+        assertEquals(1, parallel.getEpicSubtasks(1).size());
+        assertEquals(6001, parallel.addTask(new Task("Новая", "Описание")));
+    }
+
+    @Test
+    void shouldKeepSnapshotPermissionsAfterSave() throws IOException {
+        Files.setPosixFilePermissions(tempFile.toPath(), PosixFilePermissions.fromString("rw-r--r--"));
+
+        taskManager.addTask(new Task("Task", "Desc"));
+
+        assertEquals("rw-r--r--",
+                PosixFilePermissions.toString(Files.getPosixFilePermissions(tempFile.toPath())));
+    }
+}
@@ -93,4 +93,28 @@ public class InMemoryHistoryManagerTest {
         assertEquals(10, history.size()); // MAX_HISTORY_SIZE = 10
         assertEquals(3, history.get(0).getId()); // первые 2 удалены
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldRespectConfiguredCapacity() {
+        HistoryManager deepHistory = Managers.getDefaultHistory(100);
+        for (int i = 1; i <= 150; i++) {
+            Task t = new Task("Task" + i, "Desc");
+            t.setId(i);
+            deepHistory.add(t);
+        }
+        List<Task> history = deepHistory.getHistory();
+        assertEquals(100, history.size());
+        assertEquals(51, history.get(0).getId());
+    }
+
+    @Test
+    void shouldKeepFirstViewPositionWithFirstViewedPolicy() {
+        HistoryManager history = Managers.getDefaultHistory(2, HistoryEvictionPolicy.FIRST_VIEWED);
+        history.add(task1);
+        history.add(task2);
+        history.add(task1);
+        history.add(task3);
+
+        assertEquals(List.of(task2, task3), history.getHistory());
+    }
+}
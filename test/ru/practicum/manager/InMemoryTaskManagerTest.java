@@ -1,6 +1,18 @@
 package ru.practicum.manager;
 
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.practicum.model.Epic;
+import ru.practicum.model.Status;
+import ru.practicum.model.Subtask;
+import ru.practicum.model.Task;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
 
 public class InMemoryTaskManagerTest extends TaskManagerTest<InMemoryTaskManager> {
 
@@ -8,4 +20,120 @@ public class InMemoryTaskManagerTest extends TaskManagerTest<InMemoryTaskManager
     void beforeEach() {
         taskManager = new InMemoryTaskManager();
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldPublishChangeEventsInOrderWithBeforeAndAfterState() {
+        List<TaskEvent> events = new ArrayList<>();
+        try (TaskEventSubscription subscription = taskManager.subscribe(batch -> events.addAll(batch))) {
+            int epicId = taskManager.addEpic(new Epic("Эпик", "Описание"));
+            Subtask subtask = new Subtask("Подзадача", "Описание", epicId);
+            int subtaskId = taskManager.addSubtask(subtask);
+
+            Subtask done = new Subtask(subtaskId, "Подзадача", "Готово", Status.DONE, null, null, epicId);
+            taskManager.updateSubtask(done);
+            taskManager.getSubtaskByID(subtaskId);
+            taskManager.peekSubtask(subtaskId);
+            taskManager.deleteEpicByID(epicId);
+            assertEquals(0, subscription.getDroppedCount());
+        }
+
+        List<TaskEvent.Kind> kinds = new ArrayList<>();
+        for (TaskEvent event : events) {
+            kinds.add(event.getKind());
+        }
+        assertEquals(List.of(
+                TaskEvent.Kind.CREATED,
+                TaskEvent.Kind.CREATED,
+                TaskEvent.Kind.UPDATED,
+                TaskEvent.Kind.EPIC_STATUS_CHANGED,
+                TaskEvent.Kind.HISTORY_TOUCHED,
+                TaskEvent.Kind.DELETED,
+                TaskEvent.Kind.DELETED), kinds);
+
+        TaskEvent updated = events.get(2);
+        assertEquals(Status.NEW, updated.getBefore().getStatus());
+        assertEquals(Status.DONE, updated.getAfter().getStatus());
+
+        TaskEvent epicStatus = events.get(3);
+        assertEquals(Status.NEW, epicStatus.getBefore().getStatus());
+        assertEquals(Status.DONE, epicStatus.getAfter().getStatus());
+
+        TaskEvent deletedEpic = events.get(6);
+        assertTrue(deletedEpic.getBefore() instanceof Epic);
+        assertNull(deletedEpic.getAfter());
+        for (int i = 1; i < events.size(); i++) {
+            assertTrue(events.get(i - 1).getSequence() < events.get(i).getSequence());
+        }
+    }
+
+    @Test
+    void shouldKeepEventStateIndependentFromLaterChanges() {
+        List<TaskEvent> events = new ArrayList<>();
+        TaskEventSubscription subscription = taskManager.subscribe(batch -> events.addAll(batch));
+        int epicId = taskManager.addEpic(new Epic("Старое имя", "Описание"));
+        taskManager.updateEpic(new Epic(epicId, "Новое имя", "Описание", Status.NEW));
+        subscription.close();
+
+        assertEquals("Старое имя", events.get(0).getAfter().getName());
+        assertEquals("Старое имя", events.get(1).getBefore().getName());
+        assertEquals("Новое имя", events.get(1).getAfter().getName());
+    }
+
+    @Test
+    void shouldPublishPreviousStateForInPlaceUpdate() {
+        Task task = new Task("Задача", "Описание");
+        int taskId = taskManager.addTask(task);
+        List<TaskEvent> events = new ArrayList<>();
+        TaskEventSubscription subscription = taskManager.subscribe(batch -> events.addAll(batch));
+
+        task.setStatus(Status.IN_PROGRESS);
+        taskManager.updateTask(task);
+        Task stored = taskManager.getTaskByID(taskId);
+        stored.setStatus(Status.DONE);
+        taskManager.updateTask(stored);
+        subscription.close();
+
+        assertEquals(Status.NEW, events.get(0).getBefore().getStatus());
+        assertEquals(Status.IN_PROGRESS, events.get(0).getAfter().getStatus());
+        assertEquals(TaskEvent.Kind.HISTORY_TOUCHED, events.get(1).getKind());
+        assertEquals(Status.IN_PROGRESS, events.get(2).getBefore().getStatus());
+        assertEquals(Status.DONE, events.get(2).getAfter().getStatus());
+    }
+
+    @Test
+    void shouldDropEventsWhenBufferIsFullAndPolicyIsDrop() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        List<TaskEvent> events = new ArrayList<>();
+        TaskEventSubscription subscription = taskManager.subscribe(batch -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            events.addAll(batch);
+        }, 4, 2, TaskEventSubscription.Overflow.DROP);
+
+        for (int i = 0; i < 20; i++) {
+            taskManager.addTask(new Task("Задача " + i, "Описание"));
+        }
+        release.countDown();
+        subscription.close();
+
+        assertTrue(subscription.getDroppedCount() > 0);
+        assertEquals(20, events.size() + subscription.getDroppedCount());
+        assertEquals(events.size(), subscription.getDeliveredCount());
+    }
+
+    @Test
+    void shouldStopPublishingAfterClose() {
+        List<TaskEvent> events = new ArrayList<>();
+        TaskEventSubscription subscription = taskManager.subscribe(batch -> events.addAll(batch));
+        taskManager.addTask(new Task("Задача", "Описание"));
+        subscription.close();
+        taskManager.addTask(new Task("Задача", "Описание"));
+        subscription.publish(new TaskEvent(0, TaskEvent.Kind.CREATED, 0, null, null));
+
+        assertEquals(1, events.size());
+        assertEquals(1, subscription.getDroppedCount());
+    }
+}
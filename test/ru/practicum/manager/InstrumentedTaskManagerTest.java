@@ -0,0 +1,81 @@
+package ru.practicum.manager;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.practicum.metrics.InMemoryMetricsRegistry;
+import ru.practicum.model.Task;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InstrumentedTaskManagerTest extends TaskManagerTest<InstrumentedTaskManager> {
+
+    private InMemoryMetricsRegistry registry;
+
+    @BeforeEach
+    void beforeEach() {
+        registry = new InMemoryMetricsRegistry();
+        taskManager = new InstrumentedTaskManager(new InMemoryTaskManager(), registry);
+    }
+
+    @Test
+    void shouldRecordOperationsAndRejectedOverlaps() throws IOException {
+        LocalDateTime start = LocalDateTime.of(2024, 6, 10, 10, 0);
+        taskManager.addTask(new Task("Task1", "Desc", start, Duration.ofMinutes(30)));
+        taskManager.addTask(new Task("Task2", "Desc", start.plusMinutes(10), Duration.ofMinutes(30)));
+        taskManager.getTasks();
+
+        Map<String, Long> metrics = registry.snapshot();
+        assertEquals(2, metrics.get("taskManager.addTask.count"));
+        assertEquals(1, metrics.get("taskManager.getTasks.count"));
+        assertEquals(2, metrics.get("manager.hasIntersections.count"));
+        assertEquals(1, metrics.get("manager.rejectedOverlaps"));
+        assertEquals(1, metrics.get("prioritized.size"));
+
+        StringWriter out = new StringWriter();
+        registry.writeTo(out);
+        assertTrue(out.toString().contains("tasks.size 1\n"));
+    }
+
+    @Test
+    void shouldRecordEachMethodAndBatchCommitSeparately() {
+        int id = taskManager.addTask(new Task("Task", "Desc"));
+        taskManager.peekTask(id);
+        taskManager.peekEpic(id);
+        taskManager.getEpics();
+        try (TaskBatch batch = taskManager.beginBatch()) {
+            batch.addTask(new Task("Batched", "Desc"));
+            assertTrue(batch.commit());
+        }
+
+        Map<String, Long> metrics = registry.snapshot();
+        assertEquals(1, metrics.get("taskManager.peekTask.count"));
+        assertEquals(1, metrics.get("taskManager.peekEpic.count"));
+        assertEquals(0, metrics.get("taskManager.peekSubtask.count"));
+        assertEquals(1, metrics.get("taskManager.getEpics.count"));
+        assertEquals(0, metrics.get("taskManager.getTasks.count"));
+        assertEquals(1, metrics.get("taskManager.beginBatch.count"));
+        assertEquals(1, metrics.get("taskManager.batch.commit.count"));
+    }
+
+    @Test
+    void shouldRecordSnapshotSaves() throws IOException {
+        File file = File.createTempFile("instrumented", ".csv");
+        try {
+            TaskManager manager = Managers.getInstrumented(new FileBackedTaskManager(file), registry);
+            manager.addTask(new Task("Task", "Desc"));
+
+            Map<String, Long> metrics = registry.snapshot();
+            assertEquals(1, metrics.get("snapshot.save.count"));
+            assertEquals(file.length(), metrics.get("snapshot.bytes"));
+        } finally {
+            file.delete();
+        }
+    }
+}
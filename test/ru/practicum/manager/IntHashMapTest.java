@@ -0,0 +1,62 @@
+package ru.practicum.manager;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IntHashMapTest {
+
+    @Test
+    void shouldBehaveLikeHashMapUnderRandomOperations() {
+        IntHashMap<String> map = new IntHashMap<>(4);
+        Map<Integer, String> expected = new HashMap<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 50_000; i++) {
+            // Узкий диапазон и шаг 64 дают много коллизий и сдвигов при удалении
+            int key = random.nextInt(2_000) * (random.nextBoolean() ? 1 : 64);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                String value = "v" + i;
+                assertEquals(expected.put(key, value), map.put(key, value));
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        for (Map.Entry<Integer, String> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), map.get(entry.getKey()));
+        }
+        assertEquals(new HashSet<>(expected.values()), new HashSet<>(map.values()));
+    }
+
+    @Test
+    void shouldKeepSequentialIdsInOrderAndClear() {
+        IntHashMap<Integer> map = new IntHashMap<>();
+        for (int id = 1; id <= 100; id++) {
+            map.put(id, id);
+        }
+
+        List<Integer> expected = new ArrayList<>();
+        for (int id = 1; id <= 100; id++) {
+            expected.add(id);
+        }
+        assertEquals(expected, new ArrayList<>(map.values()));
+        assertFalse(map.containsKey(0));
+        assertTrue(map.containsKey(100));
+        assertNull(map.remove(101));
+
+        map.clear();
+
+        assertTrue(map.isEmpty());
+        assertFalse(map.values().iterator().hasNext());
+        assertNull(map.get(1));
+    }
+
+    @Test
+    void shouldRejectNullValues() {
+        assertThrows(IllegalArgumentException.class, () -> new IntHashMap<String>().put(1, null));
+    }
+}
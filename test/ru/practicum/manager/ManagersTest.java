@@ -17,4 +17,20 @@ class ManagersTest {
         HistoryManager history = Managers.getDefaultHistory();
         assertNotNull(history, "getDefaultHistory() должен возвращать рабочий HistoryManager");
     }
-}
\ No newline at end of file
+
+    @Test
+    void getConcurrentReturnsConcurrentTaskManager() {
+        TaskManager manager = Managers.getConcurrent();
+        assertInstanceOf(ConcurrentTaskManager.class, manager);
+    }
+
+    @Test
+    void historyThreadingDoesNotDependOnEvictionPolicy() {
+        assertInstanceOf(InMemoryHistoryManager.class, Managers.getDefaultHistory(5));
+        assertInstanceOf(InMemoryHistoryManager.class,
+                Managers.getDefaultHistory(5, HistoryEvictionPolicy.FIRST_VIEWED));
+        assertInstanceOf(ConcurrentHistoryManager.class, Managers.getConcurrentHistory(5));
+        assertInstanceOf(ConcurrentHistoryManager.class,
+                Managers.getConcurrentHistory(5, HistoryEvictionPolicy.FIRST_VIEWED));
+    }
+}
@@ -0,0 +1,56 @@
+package ru.practicum.manager;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.model.Task;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PartitionedHistoryServiceTest {
+
+    private static Task task(int id) {
+        Task task = new Task("Task" + id, "Desc");
+        task.setId(id);
+        return task;
+    }
+
+    @Test
+    void shouldKeepSessionsSeparate() {
+        PartitionedHistoryService service = new PartitionedHistoryService(10, 100);
+        service.add("alice", task(1));
+        service.add("bob", task(2));
+        service.add("alice", task(3));
+
+        assertEquals(List.of(task(1), task(3)), service.getHistory("alice", id -> true));
+        assertEquals(List.of(task(2)), service.getHistory("bob", id -> true));
+        assertTrue(service.getHistory("carol", id -> true).isEmpty());
+    }
+
+    @Test
+    void shouldEvictLeastRecentlyUsedSessionsWhenBudgetExceeded() {
+        PartitionedHistoryService service = new PartitionedHistoryService(2, 4);
+        service.add("first", task(1));
+        service.add("first", task(2));
+        service.add("second", task(3));
+        service.add("second", task(4));
+        service.getHistory("first", id -> true); // первая сессия становится самой свежей
+
+        service.add("third", task(5));
+
+        assertEquals(2, service.getSessionCount());
+        assertTrue(service.getHistory("second", id -> true).isEmpty());
+        assertEquals(2, service.getHistory("first", id -> true).size());
+        assertTrue(service.getTotalEntries() <= 4);
+    }
+
+    @Test
+    void shouldDropDeletedTasksOnRead() {
+        PartitionedHistoryService service = new PartitionedHistoryService(10, 100);
+        service.add("alice", task(1));
+        service.add("alice", task(2));
+
+        assertEquals(List.of(task(2)), service.getHistory("alice", id -> id != 1));
+        assertEquals(1, service.getTotalEntries());
+    }
+}
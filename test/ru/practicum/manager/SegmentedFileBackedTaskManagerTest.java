@@ -0,0 +1,95 @@
+package ru.practicum.manager;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.practicum.model.Epic;
+import ru.practicum.model.Status;
+import ru.practicum.model.Subtask;
+import ru.practicum.model.Task;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SegmentedFileBackedTaskManagerTest extends TaskManagerTest<SegmentedFileBackedTaskManager> {
+
+    private File directory;
+
+    @BeforeEach
+    void beforeEach() {
+        assertDoesNotThrow(() -> {
+            directory = Files.createTempDirectory("segments").toFile();
+            taskManager = new SegmentedFileBackedTaskManager(directory, 10);
+        });
+    }
+
+    @AfterEach
+    void afterEach() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    private Set<String> fileNames() {
+        return Arrays.stream(directory.listFiles()).map(File::getName).collect(Collectors.toSet());
+    }
+
+    private static Set<String> withPrefix(Set<String> names, String prefix) {
+        return names.stream().filter(name -> name.startsWith(prefix)).collect(Collectors.toSet());
+    }
+
+    @Test
+    void shouldRewriteOnlyTouchedSegments() {
+        for (int i = 0; i < 25; i++) {
+            taskManager.addTask(new Task("Задача " + i, "Описание"));
+        }
+        int epicId = taskManager.addEpic(new Epic("Эпик", "Описание"));
+        Subtask subtask = new Subtask("Подзадача", "Описание", epicId);
+        int subtaskId = taskManager.addSubtask(subtask);
+        Set<String> before = fileNames();
+
+        Subtask done = new Subtask(subtaskId, "Подзадача", "Описание", Status.DONE, null, null, epicId);
+        taskManager.updateSubtask(done);
+
+        Set<String> after = fileNames();
+        assertEquals(withPrefix(before, "task-"), withPrefix(after, "task-"),
+                "Сегменты задач не должны переписываться");
+        assertNotEquals(withPrefix(before, "subtask-"), withPrefix(after, "subtask-"));
+        assertNotEquals(withPrefix(before, "epic-"), withPrefix(after, "epic-"));
+        assertEquals(before.size(), after.size());
+        assertEquals(0, taskManager.getDirtySegmentCount());
+    }
+
+    @Test
+    void shouldReloadFromManifestAndDropOrphans() throws IOException {
+        int taskId = taskManager.addTask(new Task("Задача", "Описание"));
+        int epicId = taskManager.addEpic(new Epic("Эпик", "Описание"));
+        Subtask subtask = new Subtask("Подзадача", "Описание", epicId);
+        subtask.setStatus(Status.IN_PROGRESS);
+        int subtaskId = taskManager.addSubtask(subtask);
+        taskManager.getSubtaskByID(subtaskId);
+        taskManager.deleteTaskByID(taskId);
+        File orphan = new File(directory, "task-0.99.csv");
+        Files.writeString(orphan.toPath(), "мусор");
+
+        SegmentedFileBackedTaskManager reloaded = new SegmentedFileBackedTaskManager(directory, 10);
+
+        assertTrue(reloaded.getTasks().isEmpty());
+        assertEquals(Status.IN_PROGRESS, reloaded.getEpicByID(epicId).getStatus());
+        assertEquals(List.of(subtaskId), reloaded.getEpicSubtasks(epicId).stream().map(Task::getId).toList());
+        assertEquals(List.of(subtaskId, epicId), reloaded.getHistory().stream().map(Task::getId).toList());
+        assertFalse(orphan.exists());
+        assertTrue(new File(directory, SegmentedFileBackedTaskManager.MANIFEST).exists());
+    }
+}
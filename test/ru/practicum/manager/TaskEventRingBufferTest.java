@@ -0,0 +1,73 @@
+package ru.practicum.manager;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TaskEventRingBufferTest {
+
+    @Test
+    void shouldRejectOfferWhenFullAndAcceptAfterDrain() {
+        TaskEventRingBuffer buffer = new TaskEventRingBuffer(2);
+        assertTrue(buffer.offer(event(1)));
+        assertTrue(buffer.offer(event(2)));
+        assertFalse(buffer.offer(event(3)));
+
+        List<TaskEvent> drained = new ArrayList<>();
+        assertEquals(1, buffer.drainTo(drained, 1));
+        assertTrue(buffer.offer(event(3)));
+        assertEquals(2, buffer.drainTo(drained, 10));
+        assertEquals(List.of(1L, 2L, 3L), List.of(drained.get(0).getSequence(),
+                drained.get(1).getSequence(), drained.get(2).getSequence()));
+        assertEquals(0, buffer.size());
+    }
+
+    @Test
+    void shouldNotLoseOrDuplicateEventsWithConcurrentProducers() throws InterruptedException {
+        TaskEventRingBuffer buffer = new TaskEventRingBuffer(64);
+        int producers = 4;
+        int perProducer = 20_000;
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            long base = (long) p * perProducer;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    TaskEvent event = event(base + i);
+                    while (!buffer.offer(event)) {
+                        Thread.onSpinWait();
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+
+        Set<Long> seen = new HashSet<>();
+        List<TaskEvent> drained = new ArrayList<>();
+        while (seen.size() < producers * perProducer) {
+            drained.clear();
+            buffer.drainTo(drained, 16);
+            for (TaskEvent event : drained) {
+                assertTrue(seen.add(event.getSequence()));
+            }
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(0, buffer.size());
+    }
+
+    @Test
+    void shouldRequirePowerOfTwoCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new TaskEventRingBuffer(3));
+    }
+
+    private static TaskEvent event(long sequence) {
+        return new TaskEvent(sequence, TaskEvent.Kind.CREATED, (int) sequence, null, null);
+    }
+}
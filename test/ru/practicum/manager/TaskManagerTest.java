@@ -97,6 +97,21 @@ public abstract class TaskManagerTest<T extends TaskManager> {
         assertEquals(-1, id);
     }
 
+    @Test
+    void shouldNotAddIntersectingTaskThatReusesExistingId() {
+        Task task1 = new Task("Task1", "Desc1",
+                LocalDateTime.of(2024, 6, 10, 10, 0), Duration.ofMinutes(30));
+        int id = taskManager.addTask(task1);
+
+        Task copy = new Task("Copy", "Desc2",
+                LocalDateTime.of(2024, 6, 10, 10, 10), Duration.ofMinutes(30));
+        copy.setId(id);
+
+        assertEquals(-1, taskManager.addTask(copy));
+        assertEquals(-1, taskManager.addTask(task1));
+        assertEquals(1, taskManager.getPrioritizedTasks().size());
+    }
+
     @Test
     void shouldAddNonIntersectingTasks() {
         Task task1 = new Task("Task1", "Desc1",
@@ -111,6 +126,108 @@ public abstract class TaskManagerTest<T extends TaskManager> {
         assertNotEquals(-1, id2);
     }
 
+    @Test
+    void shouldNotAddTaskTouchingExistingTaskBoundary() {
+        Task task1 = new Task("Task1", "Desc1",
+                LocalDateTime.of(2024, 6, 10, 10, 0), Duration.ofMinutes(30));
+        taskManager.addTask(task1);
+
+        Task task2 = new Task("Task2", "Desc2",
+                LocalDateTime.of(2024, 6, 10, 10, 30), Duration.ofMinutes(30)); // начинается в момент окончания
+
+        assertEquals(-1, taskManager.addTask(task2));
+    }
+
+    @Test
+    void shouldNotAddTaskCoveringExistingTask() {
+        Task inner = new Task("Inner", "Desc",
+                LocalDateTime.of(2024, 6, 10, 10, 0), Duration.ofMinutes(10));
+        taskManager.addTask(inner);
+
+        Task outer = new Task("Outer", "Desc",
+                LocalDateTime.of(2024, 6, 10, 9, 0), Duration.ofHours(3));
+
+        assertEquals(-1, taskManager.addTask(outer));
+    }
+
+    @Test
+    void shouldUpdateTaskWithinItsOwnTimeSlot() {
+        Task task = new Task("Task", "Desc",
+                LocalDateTime.of(2024, 6, 10, 10, 0), Duration.ofMinutes(30));
+        int id = taskManager.addTask(task);
+
+        Task moved = new Task(id, "Task", "Desc", Status.IN_PROGRESS,
+                LocalDateTime.of(2024, 6, 10, 10, 15), Duration.ofMinutes(30));
+
+        assertTrue(taskManager.updateTask(moved));
+        assertEquals(List.of(moved), taskManager.getPrioritizedTasks());
+    }
+
+    @Test
+    void shouldCommitBatchWithSubtasksOfNewEpic() {
+        int epicId;
+        try (TaskBatch batch = taskManager.beginBatch()) {
+            epicId = batch.addEpic(new Epic("Epic", "Desc"));
+            Subtask done = new Subtask("Sub1", "Desc", epicId,
+                    LocalDateTime.of(2024, 6, 10, 10, 0), Duration.ofMinutes(30));
+            done.setStatus(Status.DONE);
+            batch.addSubtask(done);
+            batch.addSubtask(new Subtask("Sub2", "Desc", epicId,
+                    LocalDateTime.of(2024, 6, 10, 11, 0), Duration.ofMinutes(30)));
+            batch.addTask(new Task("Task", "Desc"));
+            assertTrue(batch.commit());
+        }
+
+        assertEquals(2, taskManager.getEpicSubtasks(epicId).size());
+        assertEquals(Status.IN_PROGRESS, taskManager.getEpicByID(epicId).getStatus());
+        assertEquals(1, taskManager.getTasks().size());
+        assertEquals(2, taskManager.getPrioritizedTasks().size());
+    }
+
+    @Test
+    void shouldRejectWholeBatchWhenItemsIntersect() {
+        taskManager.addTask(new Task("Existing", "Desc",
+                LocalDateTime.of(2024, 6, 10, 9, 0), Duration.ofMinutes(30)));
+
+        try (TaskBatch batch = taskManager.beginBatch()) {
+            batch.addTask(new Task("Task1", "Desc",
+                    LocalDateTime.of(2024, 6, 10, 10, 0), Duration.ofMinutes(30)));
+            batch.addTask(new Task("Task2", "Desc",
+                    LocalDateTime.of(2024, 6, 10, 10, 15), Duration.ofMinutes(30))); // пересекается с Task1
+            assertFalse(batch.commit());
+        }
+
+        assertEquals(1, taskManager.getTasks().size());
+        assertEquals(1, taskManager.getPrioritizedTasks().size());
+    }
+
+    @Test
+    void shouldKeepCallerIdsWhenBatchRejected() {
+        taskManager.addTask(new Task("Existing", "Desc",
+                LocalDateTime.of(2024, 6, 10, 9, 0), Duration.ofMinutes(30)));
+        Task untimed = new Task("Task1", "Desc");
+        Task overlapping = new Task("Task2", "Desc",
+                LocalDateTime.of(2024, 6, 10, 9, 15), Duration.ofMinutes(30));
+
+        try (TaskBatch batch = taskManager.beginBatch()) {
+            batch.addTask(untimed);
+            batch.addTask(overlapping);
+            assertFalse(batch.commit());
+        }
+
+        assertEquals(0, untimed.getId());
+        assertEquals(0, overlapping.getId());
+    }
+
+    @Test
+    void shouldDiscardUncommittedBatch() {
+        try (TaskBatch batch = taskManager.beginBatch()) {
+            batch.addTask(new Task("Task", "Desc"));
+        }
+
+        assertTrue(taskManager.getTasks().isEmpty());
+    }
+
     @Test
     void shouldReturnEmptyHistory_WhenNoTasksViewed() {
         List<Task> history = taskManager.getHistory();
@@ -155,4 +272,149 @@ public abstract class TaskManagerTest<T extends TaskManager> {
         List<Task> history = taskManager.getHistory();
         assertTrue(history.isEmpty());
     }
+
+    @Test
+    void shouldRecordSessionLookupsIntoSeparateHistories() {
+        int taskId = taskManager.addTask(new Task("Task", "Desc"));
+        int epicId = taskManager.addEpic(new Epic("Epic", "Desc"));
+
+        taskManager.getTaskByID(taskId, "alice");
+        taskManager.getEpicByID(epicId, "bob");
+        taskManager.deleteEpicByID(epicId);
+
+        assertEquals(taskId, taskManager.getHistory("alice").get(0).getId());
+        assertTrue(taskManager.getHistory("bob").isEmpty());
+        assertTrue(taskManager.getHistory().isEmpty(), "Общая история не должна меняться");
+    }
+
+    @Test
+    void shouldNotRecordHistoryOnPeek() {
+        int taskId = taskManager.addTask(new Task("Task", "Desc"));
+        int epicId = taskManager.addEpic(new Epic("Epic", "Desc"));
+        int subId = taskManager.addSubtask(new Subtask("Sub", "Desc", epicId));
+
+        assertEquals(taskId, taskManager.peekTask(taskId).getId());
+        assertEquals(epicId, taskManager.peekEpic(epicId).getId());
+        assertEquals(subId, taskManager.peekSubtask(subId).getId());
+        assertNull(taskManager.peekTask(epicId));
+
+        assertTrue(taskManager.getHistory().isEmpty());
+    }
+
+    @Test
+    void shouldQueryByStatusAcrossUpdatesAndDeletes() {
+        int taskId = taskManager.addTask(new Task("Task", "Desc"));
+        int epicId = taskManager.addEpic(new Epic("Epic", "Desc"));
+        Subtask sub1 = new Subtask("Sub1", "Desc", epicId);
+        sub1.setStatus(Status.IN_PROGRESS);
+        int sub1Id = taskManager.addSubtask(sub1);
+        int sub2Id = taskManager.addSubtask(new Subtask("Sub2", "Desc", epicId));
+
+        assertEquals(1, taskManager.getTasksByStatus(Status.NEW, TaskType.TASK).size());
+        assertEquals(epicId, taskManager.getTasksByStatus(Status.IN_PROGRESS, TaskType.EPIC).get(0).getId());
+        assertEquals(sub1Id, taskManager.getEpicSubtasksByStatus(epicId, Status.IN_PROGRESS).get(0).getId());
+
+        Task done = new Task(taskId, "Task", "Desc", Status.DONE, null, null);
+        taskManager.updateTask(done);
+        taskManager.deleteSubtaskByID(sub1Id);
+
+        assertTrue(taskManager.getTasksByStatus(Status.NEW, TaskType.TASK).isEmpty());
+        assertEquals(List.of(done), taskManager.getTasksByStatus(Status.DONE, TaskType.TASK));
+        assertTrue(taskManager.getTasksByStatus(Status.IN_PROGRESS, TaskType.SUBTASK).isEmpty());
+        assertEquals(epicId, taskManager.getTasksByStatus(Status.NEW, TaskType.EPIC).get(0).getId());
+        assertEquals(sub2Id, taskManager.getEpicSubtasksByStatus(epicId, Status.NEW).get(0).getId());
+
+        taskManager.deleteEpicByID(epicId);
+
+        assertTrue(taskManager.getTasksByStatus(Status.NEW, TaskType.EPIC).isEmpty());
+        assertTrue(taskManager.getTasksByStatus(Status.NEW, TaskType.SUBTASK).isEmpty());
+        assertTrue(taskManager.getEpicSubtasksByStatus(epicId, Status.NEW).isEmpty());
+    }
+
+    @Test
+    void shouldReturnTasksInTimeWindow() {
+        LocalDateTime day = LocalDateTime.of(2024, 6, 10, 0, 0);
+        int early = taskManager.addTask(new Task("Early", "Desc", day.plusHours(8), Duration.ofMinutes(90)));
+        int morning = taskManager.addTask(new Task("Morning", "Desc", day.plusHours(10), Duration.ofMinutes(30)));
+        int noon = taskManager.addTask(new Task("Noon", "Desc", day.plusHours(12), Duration.ofMinutes(30)));
+        taskManager.addTask(new Task("Evening", "Desc", day.plusHours(18), Duration.ofMinutes(30)));
+        taskManager.addTask(new Task("Unscheduled", "Desc"));
+
+        List<Task> window = taskManager.getTasksBetween(day.plusHours(9), day.plusHours(18));
+        assertEquals(List.of(early, morning, noon), window.stream().map(Task::getId).toList());
+
+        List<Task> next = taskManager.getNextTasks(day.plusHours(8), 2);
+        assertEquals(List.of(morning, noon), next.stream().map(Task::getId).toList());
+        assertTrue(taskManager.getNextTasks(day.plusDays(1), 5).isEmpty());
+
+        assertThrows(IllegalArgumentException.class,
+                () -> taskManager.getTasksBetween(day.plusHours(2), day.plusHours(1)));
+    }
+
+    @Test
+    void shouldFindEarliestFreeSlot() {
+        LocalDateTime day = LocalDateTime.of(2024, 6, 10, 0, 0);
+        taskManager.addTask(new Task("A", "Desc", day.plusHours(10), Duration.ofMinutes(30)));
+        taskManager.addTask(new Task("B", "Desc", day.plusHours(10).plusMinutes(45), Duration.ofMinutes(60)));
+
+        assertEquals(day.plusHours(9), taskManager.findFreeSlot(day.plusHours(9), Duration.ofMinutes(30)));
+        // Между A и B только 14 свободных минут
+        assertEquals(day.plusHours(10).plusMinutes(31),
+                taskManager.findFreeSlot(day.plusHours(10), Duration.ofMinutes(13)));
+        assertEquals(day.plusHours(11).plusMinutes(46),
+                taskManager.findFreeSlot(day.plusHours(10), Duration.ofMinutes(20)));
+
+        Task task = new Task("C", "Desc", null, Duration.ofMinutes(20));
+        assertTrue(taskManager.addTaskAtFreeSlot(task, day.plusHours(10)) > 0);
+        assertEquals(day.plusHours(11).plusMinutes(46), task.getStartTime());
+    }
+
+    @Test
+    void shouldPlaceEpicSubtasksInOneSweep() {
+        LocalDateTime day = LocalDateTime.of(2024, 6, 10, 0, 0);
+        taskManager.addTask(new Task("Busy", "Desc", day.plusHours(10).plusMinutes(20), Duration.ofMinutes(30)));
+        int epicId = taskManager.addEpic(new Epic("Epic", "Desc"));
+        List<Subtask> subtasks = List.of(
+                new Subtask("S1", "Desc", epicId, null, Duration.ofMinutes(10)),
+                new Subtask("S2", "Desc", epicId, null, Duration.ofMinutes(10)),
+                new Subtask("S3", "Desc", epicId, null, Duration.ofMinutes(10)));
+
+        List<Integer> ids = taskManager.addSubtasksAtFreeSlots(subtasks, day.plusHours(10));
+
+        assertEquals(3, ids.size());
+        assertEquals(day.plusHours(10), subtasks.get(0).getStartTime());
+        assertEquals(day.plusHours(10).plusMinutes(51), subtasks.get(1).getStartTime());
+        assertEquals(day.plusHours(11).plusMinutes(2), subtasks.get(2).getStartTime());
+        assertEquals(3, taskManager.getEpicSubtasks(epicId).size());
+        assertEquals(4, taskManager.getPrioritizedTasks().size());
+    }
+
+    @Test
+    void shouldLeaveRejectedTasksUntouchedWhenSchedulingAtFreeSlot() {
+        LocalDateTime day = LocalDateTime.of(2024, 6, 10, 0, 0);
+        Subtask orphan = new Subtask("Orphan", "Desc", 999, null, Duration.ofMinutes(10));
+
+        assertEquals(-1, taskManager.addTaskAtFreeSlot(orphan, day));
+        assertNull(orphan.getStartTime());
+
+        List<Subtask> orphans = List.of(new Subtask("S1", "Desc", 999, null, Duration.ofMinutes(10)));
+        assertTrue(taskManager.addSubtasksAtFreeSlots(orphans, day).isEmpty());
+        assertNull(orphans.get(0).getStartTime());
+        assertEquals(0, orphans.get(0).getId());
+    }
+
+    @Test
+    void shouldReuseReadOnlySnapshotsUntilDataChanges() {
+        taskManager.addTask(new Task("Task", "Desc"));
+
+        List<Task> first = taskManager.getTasks();
+        assertSame(first, taskManager.getTasks());
+        assertThrows(UnsupportedOperationException.class, () -> first.add(new Task("Other", "Desc")));
+
+        taskManager.addTask(new Task("Second", "Desc"));
+
+        assertEquals(1, first.size());
+        assertEquals(2, taskManager.getTasks().size());
+        assertTrue(taskManager.getEpicSubtasks(999).isEmpty());
+    }
 }
@@ -0,0 +1,41 @@
+package ru.practicum.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+
+    @Test
+    void bucketsCoverValuesWithBoundedError() {
+        for (long value : new long[]{0, 1, 7, 8, 15, 16, 1_000, 123_456_789, Long.MAX_VALUE}) {
+            long upper = LatencyHistogram.upperBoundOf(LatencyHistogram.indexOf(value));
+            assertTrue(upper >= value, "Граница корзины не меньше значения " + value);
+            assertTrue(upper - value <= value / 8, "Погрешность не больше 12.5% для " + value);
+        }
+    }
+
+    @Test
+    void percentilesFollowRecordedValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1_000L);
+        }
+
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1_000_000, histogram.getMax());
+        assertEquals(500_500, histogram.getMean(), 0.001);
+        long median = histogram.getValueAtPercentile(50);
+        assertTrue(median >= 500_000 && median <= 500_000 * 9 / 8, "Медиана: " + median);
+        assertEquals(1_000_000, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    void emptyHistogramReportsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        assertEquals(0, histogram.getValueAtPercentile(99));
+        assertEquals(0, histogram.getMean());
+        assertThrows(IllegalArgumentException.class, () -> histogram.getValueAtPercentile(101));
+    }
+}
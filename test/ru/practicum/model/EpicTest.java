@@ -3,6 +3,10 @@ package ru.practicum.model;
 import org.junit.jupiter.api.Test;
 import ru.practicum.manager.InMemoryTaskManager;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class EpicTest {
@@ -42,4 +46,53 @@ class EpicTest {
         assertEquals(1, savedEpic.getSubtaskList().size(), "Эпик должен содержать подзадачу");
         assertEquals(subId, savedEpic.getSubtaskList().get(0).getId());
     }
-}
\ No newline at end of file
+
+    @Test
+    void aggregatesFollowSubtaskChanges() {
+        Epic epic = new Epic(1, "Эпик", "Описание", Status.NEW);
+        Subtask first = new Subtask(2, "Первая", "Описание", Status.DONE,
+                LocalDateTime.of(2024, 6, 10, 10, 0), Duration.ofMinutes(30), 1);
+        Subtask second = new Subtask(3, "Вторая", "Описание", Status.NEW,
+                LocalDateTime.of(2024, 6, 11, 9, 0), Duration.ofMinutes(60), 1);
+        epic.addSubtask(first);
+        epic.addSubtask(second);
+
+        assertEquals(LocalDateTime.of(2024, 6, 10, 10, 0), epic.getStartTime());
+        assertEquals(LocalDateTime.of(2024, 6, 11, 10, 0), epic.getEndTime());
+        assertEquals(Duration.ofMinutes(90), epic.getDuration());
+        assertEquals(Status.IN_PROGRESS, epic.calculateStatus());
+
+        Subtask secondDone = new Subtask(3, "Вторая", "Описание", Status.DONE,
+                LocalDateTime.of(2024, 6, 10, 8, 0), Duration.ofMinutes(15), 1);
+        epic.updateSubtask(second, secondDone);
+
+        assertEquals(LocalDateTime.of(2024, 6, 10, 8, 0), epic.getStartTime());
+        assertEquals(LocalDateTime.of(2024, 6, 10, 10, 30), epic.getEndTime());
+        assertEquals(Duration.ofMinutes(45), epic.getDuration());
+        assertEquals(Status.DONE, epic.calculateStatus());
+
+        epic.removeSubtask(first);
+        assertEquals(LocalDateTime.of(2024, 6, 10, 8, 15), epic.getEndTime());
+
+        epic.clearSubtasks();
+        assertNull(epic.getStartTime());
+        assertNull(epic.getDuration());
+        assertEquals(Status.NEW, epic.calculateStatus());
+    }
+
+    @Test
+    void subtaskOrderSurvivesReplaceAndRemove() {
+        Epic epic = new Epic(1, "Эпик", "Описание", Status.NEW);
+        for (int id = 2; id <= 5; id++) {
+            epic.addSubtask(new Subtask(id, "Подзадача" + id, "Описание", Status.NEW, null, null, 1));
+        }
+
+        epic.updateSubtask(epic.getSubtaskList().get(1),
+                new Subtask(3, "Обновлённая", "Описание", Status.DONE, null, null, 1));
+        epic.removeSubtask(epic.getSubtaskList().get(2));
+
+        assertEquals(List.of(2, 3, 5), epic.getSubtaskList().stream().map(Task::getId).toList());
+        assertEquals("Обновлённая", epic.getSubtaskList().get(1).getName());
+        assertEquals(Status.IN_PROGRESS, epic.calculateStatus());
+    }
+}